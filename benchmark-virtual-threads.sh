@@ -0,0 +1,82 @@
+#!/bin/bash
+
+################################################################################
+# Benchmark: platform threads x virtual threads (payment-service e ledger-service)
+#
+# Sobe o stack em Java 21 duas vezes (VIRTUAL_THREADS_ENABLED=false e true),
+# dispara carga em POST /payments com o `hey` e compara throughput e latência
+# (p50/p99). Com -Djdk.tracePinnedThreads=short, a JVM loga cada virtual thread
+# presa ao carrier (synchronized em volta de I/O); o total aparece no resumo.
+#
+# Uso: ./benchmark-virtual-threads.sh [duração] [conexões]
+#      ex.: ./benchmark-virtual-threads.sh 60s 200
+# Requer: docker compose e hey (go install github.com/rakyll/hey@latest)
+################################################################################
+
+set -e
+
+DURATION="${1:-60s}"
+CONCURRENCY="${2:-200}"
+RESULTS_DIR="benchmark-results/$(date +%Y%m%d-%H%M%S)"
+PAYLOAD='{"accountId": "acc-bench", "amount": 10.00, "currency": "BRL"}'
+
+if ! command -v hey > /dev/null; then
+    echo "hey não encontrado: go install github.com/rakyll/hey@latest"
+    exit 1
+fi
+
+mkdir -p "$RESULTS_DIR"
+
+wait_for_payment_service() {
+    for _ in $(seq 1 60); do
+        if curl -s -o /dev/null -w "%{http_code}" http://localhost:8080/actuator/health | grep -q 200; then
+            return 0
+        fi
+        sleep 2
+    done
+    echo "payment-service não ficou saudável"
+    exit 1
+}
+
+run_mode() {
+    local mode=$1
+    local virtual=$2
+
+    echo "▶ Modo: $mode (VIRTUAL_THREADS_ENABLED=$virtual)"
+    JAVA_VERSION=21 \
+    VIRTUAL_THREADS_ENABLED=$virtual \
+    JAVA_TOOL_OPTIONS="-Djdk.tracePinnedThreads=short" \
+        docker compose up -d --build payment-service ledger-service > /dev/null
+    wait_for_payment_service
+
+    # Aquecimento (JIT, pools de conexão) fora da medição
+    hey -z 15s -c "$CONCURRENCY" -m POST -T "application/json" -d "$PAYLOAD" \
+        http://localhost:8080/payments > /dev/null
+
+    hey -z "$DURATION" -c "$CONCURRENCY" -m POST -T "application/json" -d "$PAYLOAD" \
+        http://localhost:8080/payments > "$RESULTS_DIR/$mode.txt"
+
+    docker compose logs payment-service ledger-service > "$RESULTS_DIR/$mode.log" 2>&1
+    docker compose stop payment-service ledger-service > /dev/null
+}
+
+summary() {
+    local mode=$1
+    local report="$RESULTS_DIR/$mode.txt"
+    local rps p50 p99 pinned
+    rps=$(grep "Requests/sec" "$report" | awk '{print $2}')
+    p50=$(grep "50% in" "$report" | awk '{print $3}')
+    p99=$(grep "99% in" "$report" | awk '{print $3}')
+    pinned=$(grep -c "<== monitors" "$RESULTS_DIR/$mode.log" || true)
+    printf "%-10s %12s %12s %12s %10s\n" "$mode" "$rps" "$p50" "$p99" "$pinned"
+}
+
+run_mode platform false
+run_mode virtual true
+
+echo ""
+printf "%-10s %12s %12s %12s %10s\n" "modo" "req/s" "p50 (s)" "p99 (s)" "pinning"
+summary platform
+summary virtual
+echo ""
+echo "Relatórios completos e logs em $RESULTS_DIR"
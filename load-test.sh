@@ -0,0 +1,21 @@
+#!/bin/bash
+
+################################################################################
+# Teste de carga fim a fim do payment-service (malha aberta, latência por SAGA)
+#
+# Sobe Postgres, Redis e RabbitMQ via Testcontainers, o payment-service na mesma
+# JVM e um stand-in de ledger/balance; para cada taxa dispara POST /payments,
+# acompanha as SAGAs em saga_states e imprime p50/p99/p999 (com e sem correção
+# de coordinated omission) e o teto de throughput sustentado.
+#
+# Uso: ./load-test.sh [opções do harness]
+#      ex.: ./load-test.sh --rates=200,400,800 --duration=60s --failure-ratio=0.05
+#           ./load-test.sh --external --rates=100   (contra o docker compose no ar)
+# Requer: Docker e Maven. Offline: imagens postgres:16-alpine, redis:7-alpine,
+#         rabbitmq:3-management e testcontainers/ryuk já baixadas.
+################################################################################
+
+set -e
+
+cd "$(dirname "$0")/services/payment"
+mvn -B -q -Ploadtest test-compile exec:exec -Dloadtest.args="$*"
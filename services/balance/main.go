@@ -163,6 +163,11 @@ func main() {
 		log.Fatalf("Failed to declare saga exchange: %v", err)
 	}
 
+	err = ch.ExchangeDeclare("payment.events", "topic", true, false, false, false, nil)
+	if err != nil {
+		log.Fatalf("Failed to declare payment.events exchange: %v", err)
+	}
+
 	// Declare queue for balance updates
 	updateQueue, err := ch.QueueDeclare("balance.updates", true, false, false, false, nil)
 	if err != nil {
@@ -186,6 +191,13 @@ func main() {
 		log.Fatalf("Failed to bind compensation queue: %v", err)
 	}
 
+	// Binding direto no exchange consolidado; o broker entrega uma única cópia mesmo
+	// enquanto o binding legado (balance/update) ainda existir
+	err = ch.QueueBind(updateQueue.Name, "payment.initiated", "payment.events", false, nil)
+	if err != nil {
+		log.Fatalf("Failed to bind update queue to payment.events: %v", err)
+	}
+
 	balanceStore := NewBalanceStore()
 
 	// Consumer para atualizações de saldo
@@ -0,0 +1,94 @@
+package com.fintechdev.ledger.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintechdev.ledger.dto.LedgerEntryRequest;
+import com.fintechdev.ledger.service.AccountShardingPolicy;
+import com.fintechdev.ledger.service.LedgerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeamento do PaymentInitiated em lançamentos DEBIT/CREDIT no
+ * {@link LedgerMessageConsumer#handleLedgerEntry}. Banco e RabbitMQ são substituídos por stubs
+ * que só consomem o resultado, então o número reflete parsing, mapeamento e sharding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerMessageConsumerBenchmark {
+
+    private LedgerMessageConsumer consumer;
+    private Message message;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        consumer = new LedgerMessageConsumer(
+            new BlackholeLedgerService(blackhole),
+            null,
+            objectMapper,
+            new BlackholeEventPublisher(objectMapper, blackhole),
+            new AccountShardingPolicy(Set.of("system-account"), 8));
+        String body = "{\"event\":\"PaymentInitiated\",\"paymentId\":\"" + UUID.randomUUID()
+            + "\",\"accountId\":\"acc-benchmark-0001\",\"amount\":\"1234.56\",\"currency\":\"BRL\",\"ts\":"
+            + System.currentTimeMillis() + "}";
+        message = new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+
+    @Benchmark
+    public void handleLedgerEntry() {
+        consumer.handleLedgerEntry(message);
+    }
+
+    private static class BlackholeLedgerService extends LedgerService {
+
+        private final Blackhole blackhole;
+
+        BlackholeLedgerService(Blackhole blackhole) {
+            super(null, null, null);
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public Set<String> appendEntries(List<LedgerEntryRequest> requests) {
+            blackhole.consume(requests);
+            return Set.of();
+        }
+    }
+
+    private static class BlackholeEventPublisher extends LedgerEventPublisher {
+
+        private final Blackhole blackhole;
+
+        BlackholeEventPublisher(ObjectMapper objectMapper, Blackhole blackhole) {
+            super(objectMapper, null);
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void publishLedgerCompleted(String paymentId) {
+            blackhole.consume(paymentId);
+        }
+    }
+}
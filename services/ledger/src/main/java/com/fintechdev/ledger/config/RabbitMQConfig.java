@@ -1,6 +1,11 @@
 package com.fintechdev.ledger.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,6 +22,12 @@ public class RabbitMQConfig {
         return QueueBuilder.durable("ledger.entry.append").build();
     }
     
+    // Mensagens de ledger.entry.append que não dá para processar nem reportar (publicadas pelo LedgerEventPublisher)
+    @Bean
+    public Queue ledgerEntryDeadLetterQueue() {
+        return QueueBuilder.durable("ledger.entry.append.dlq").build();
+    }
+    
     @Bean
     public Binding ledgerEntryBinding() {
         return BindingBuilder
@@ -25,6 +36,21 @@ public class RabbitMQConfig {
             .with("entry.append");
     }
     
+    @Bean
+    public TopicExchange paymentEventsExchange() {
+        return new TopicExchange("payment.events", true, false);
+    }
+    
+    // Binding direto no exchange consolidado do payment-service. Enquanto o binding legado
+    // (ledger/entry.append) existir, o broker continua entregando uma única cópia por publish.
+    @Bean
+    public Binding ledgerEntryPaymentEventsBinding() {
+        return BindingBuilder
+            .bind(ledgerEntryQueue())
+            .to(paymentEventsExchange())
+            .with("payment.initiated");
+    }
+    
     @Bean
     public TopicExchange sagaExchange() {
         return new TopicExchange("saga", true, false);
@@ -42,5 +68,23 @@ public class RabbitMQConfig {
             .to(ledgerExchange())
             .with("compensation");
     }
+    
+    // Modo batch: o container acumula até batch-size mensagens ou espera até max-wait-ms
+    // antes de entregar a lista ao LedgerBatchMessageConsumer
+    @Bean
+    @ConditionalOnProperty(name = "ledger.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory ledgerBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${ledger.batch.size:100}") int batchSize,
+            @Value("${ledger.batch.max-wait-ms:50}") long maxWaitMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(maxWaitMs);
+        factory.setPrefetchCount(Math.max(batchSize, 250));
+        return factory;
+    }
 }
-
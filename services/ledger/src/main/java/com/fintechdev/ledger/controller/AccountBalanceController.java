@@ -0,0 +1,34 @@
+package com.fintechdev.ledger.controller;
+
+import com.fintechdev.ledger.dto.AccountBalanceResponse;
+import com.fintechdev.ledger.service.AccountBalanceProjection;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/accounts/{accountId}/balances")
+public class AccountBalanceController {
+    
+    private final AccountBalanceProjection balanceProjection;
+    
+    public AccountBalanceController(AccountBalanceProjection balanceProjection) {
+        this.balanceProjection = balanceProjection;
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<AccountBalanceResponse>> getBalances(@PathVariable String accountId) {
+        List<AccountBalanceResponse> balances = balanceProjection.getBalances(accountId).entrySet().stream()
+            .map(e -> new AccountBalanceResponse(accountId, e.getKey(), e.getValue()))
+            .toList();
+        return ResponseEntity.ok(balances);
+    }
+    
+    @GetMapping("/{currency}")
+    public ResponseEntity<AccountBalanceResponse> getBalance(@PathVariable String accountId,
+                                                             @PathVariable String currency) {
+        return ResponseEntity.ok(new AccountBalanceResponse(
+            accountId, currency, balanceProjection.getBalance(accountId, currency)));
+    }
+}
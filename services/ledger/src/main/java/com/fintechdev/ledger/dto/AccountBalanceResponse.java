@@ -0,0 +1,43 @@
+package com.fintechdev.ledger.dto;
+
+import java.math.BigDecimal;
+
+public class AccountBalanceResponse {
+    private String accountId;
+    private String currency;
+    private BigDecimal balance;
+    
+    // Default constructor for Jackson
+    public AccountBalanceResponse() {
+    }
+    
+    public AccountBalanceResponse(String accountId, String currency, BigDecimal balance) {
+        this.accountId = accountId;
+        this.currency = currency;
+        this.balance = balance;
+    }
+    
+    public String getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,37 @@
+package com.fintechdev.ledger.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * CompensationRequested lido em streaming; a compensação só precisa do paymentId, já que os
+ * valores são revertidos a partir das entradas gravadas.
+ */
+public record CompensationRequestedEvent(String paymentId) {
+
+    public static CompensationRequestedEvent read(JsonFactory jsonFactory, byte[] body) throws IOException {
+        String paymentId = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "CompensationRequested must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("paymentId".equals(field)) {
+                    paymentId = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (paymentId == null) {
+            throw new IllegalArgumentException("CompensationRequested without paymentId");
+        }
+        return new CompensationRequestedEvent(paymentId);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fintechdev.ledger.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintechdev.ledger.dto.LedgerEntryRequest;
+import com.fintechdev.ledger.service.AccountShardingPolicy;
+import com.fintechdev.ledger.service.LedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consome {@code ledger.entry.append} em lotes e grava todas as entradas double-entry
+ * em uma única transação. Cada mensagem continua gerando seu próprio
+ * {@code ledger.completed} ou {@code ledger.failed}.
+ * <p>
+ * Falha temporária do banco devolve o lote inteiro para a fila em vez de reportar falha. Se ela
+ * acontecer no meio do fallback por pagamento, os já processados repetem o evento na reentrega;
+ * os INSERTs são idempotentes e a SAGA ignora a conclusão ou falha repetida.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.batch.enabled", havingValue = "true")
+public class LedgerBatchMessageConsumer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LedgerBatchMessageConsumer.class);
+    private final LedgerService ledgerService;
+    private final JsonFactory jsonFactory;
+    private final LedgerEventPublisher eventPublisher;
+    private final AccountShardingPolicy shardingPolicy;
+    
+    public LedgerBatchMessageConsumer(LedgerService ledgerService,
+                                      ObjectMapper objectMapper,
+                                      LedgerEventPublisher eventPublisher,
+                                      AccountShardingPolicy shardingPolicy) {
+        this.ledgerService = ledgerService;
+        this.jsonFactory = objectMapper.getFactory();
+        this.eventPublisher = eventPublisher;
+        this.shardingPolicy = shardingPolicy;
+    }
+    
+    @RabbitListener(queues = "ledger.entry.append", containerFactory = "ledgerBatchContainerFactory")
+    public void handleLedgerEntries(List<Message> messages) {
+        List<PaymentEntries> payments = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            PaymentEntries entries = toEntries(message);
+            if (entries != null) {
+                payments.add(entries);
+            }
+        }
+        if (payments.isEmpty()) {
+            return;
+        }
+        
+        List<LedgerEntryRequest> requests = new ArrayList<>(payments.size() * 2);
+        for (PaymentEntries payment : payments) {
+            requests.addAll(payment.entries());
+        }
+        
+        try {
+            ledgerService.appendEntries(requests);
+            payments.forEach(payment -> eventPublisher.publishLedgerCompleted(payment.paymentId()));
+            logger.info("Ledger batch processed successfully: payments={}", payments.size());
+        } catch (Exception e) {
+            if (TransientFailures.isTransient(e)) {
+                throw new RuntimeException("Ledger batch failed, requeueing: payments=" + payments.size(), e);
+            }
+            // Isola a mensagem problemática: reprocessa cada pagamento na sua própria transação
+            logger.warn("Ledger batch failed, falling back to per-payment inserts: payments={}", payments.size(), e);
+            payments.forEach(this::appendSingle);
+        }
+    }
+    
+    private void appendSingle(PaymentEntries payment) {
+        try {
+            ledgerService.appendEntries(payment.entries());
+            eventPublisher.publishLedgerCompleted(payment.paymentId());
+        } catch (Exception e) {
+            if (TransientFailures.isTransient(e)) {
+                throw new RuntimeException("Failed to process ledger entry: paymentId=" + payment.paymentId(), e);
+            }
+            logger.error("Error processing ledger entry: paymentId={}", payment.paymentId(), e);
+            eventPublisher.publishLedgerFailed(payment.paymentId(), e.getMessage());
+        }
+    }
+    
+    private PaymentEntries toEntries(Message message) {
+        String paymentId = null;
+        try {
+            PaymentInitiatedEvent event = PaymentInitiatedEvent.read(jsonFactory, message.getBody());
+            paymentId = event.paymentId();
+            event.requireComplete();
+            
+            return new PaymentEntries(paymentId, event.toEntries(shardingPolicy));
+            
+        } catch (Exception e) {
+            logger.error("Invalid ledger entry message: {}", new String(message.getBody(), StandardCharsets.UTF_8), e);
+            if (paymentId != null) {
+                eventPublisher.publishLedgerFailed(paymentId, e.getMessage());
+            } else {
+                // Sem paymentId não há SAGA para notificar: a mensagem vai para a DLQ em vez de sumir.
+                // Se o broker não confirmar, o lote inteiro é reentregue (os INSERTs são idempotentes).
+                eventPublisher.publishDeadLetter(message, e).join();
+            }
+            return null;
+        }
+    }
+    
+    private record PaymentEntries(String paymentId, List<LedgerEntryRequest> entries) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.fintechdev.ledger.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publica os eventos de resultado do ledger no exchange de SAGA, com confirm assíncrono e
+ * reenvio pelo {@link ConfirmedPublisher}: um evento perdido deixaria a SAGA parada até o timeout.
+ */
+@Component
+public class LedgerEventPublisher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LedgerEventPublisher.class);
+    private final ObjectMapper objectMapper;
+    private final ConfirmedPublisher confirmedPublisher;
+    
+    @Value("${saga.exchange:saga}")
+    private String sagaExchange;
+    
+    @Value("${ledger.entry.dead-letter-queue:ledger.entry.append.dlq}")
+    private String entryDeadLetterQueue;
+    
+    public LedgerEventPublisher(ObjectMapper objectMapper, ConfirmedPublisher confirmedPublisher) {
+        this.objectMapper = objectMapper;
+        this.confirmedPublisher = confirmedPublisher;
+    }
+    
+    public void publishLedgerCompleted(String paymentId) {
+        try {
+            ObjectNode event = objectMapper.createObjectNode();
+            event.put("event", "LedgerCompleted");
+            event.put("paymentId", paymentId);
+            event.put("ts", System.currentTimeMillis());
+            
+            Message message = message(objectMapper.writeValueAsBytes(event));
+            confirmedPublisher.send(sagaExchange, "ledger.completed", message);
+            
+        } catch (Exception e) {
+            logger.error("Failed to publish ledger completed event", e);
+        }
+    }
+    
+    public void publishLedgerFailed(String paymentId, String reason) {
+        try {
+            ObjectNode event = objectMapper.createObjectNode();
+            event.put("event", "LedgerFailed");
+            event.put("paymentId", paymentId);
+            event.put("reason", reason);
+            event.put("ts", System.currentTimeMillis());
+            
+            Message message = message(objectMapper.writeValueAsBytes(event));
+            confirmedPublisher.send(sagaExchange, "ledger.failed", message);
+            
+        } catch (Exception e) {
+            logger.error("Failed to publish ledger failed event", e);
+        }
+    }
+    
+    public void publishCompensationCompleted(String paymentId) {
+        try {
+            ObjectNode event = objectMapper.createObjectNode();
+            event.put("event", "CompensationCompleted");
+            event.put("paymentId", paymentId);
+            event.put("service", "ledger");
+            event.put("ts", System.currentTimeMillis());
+            
+            Message message = message(objectMapper.writeValueAsBytes(event));
+            confirmedPublisher.send(sagaExchange, "compensation.completed", message);
+            
+        } catch (Exception e) {
+            logger.error("Failed to publish compensation completed event", e);
+        }
+    }
+    
+    /**
+     * Move para a DLQ uma mensagem de {@code ledger.entry.append} que não pode ser processada nem
+     * reportada à SAGA (ex.: sem paymentId), com o motivo no header {@code x-exception-message}.
+     * O future conclui no confirm do broker.
+     */
+    public CompletableFuture<Void> publishDeadLetter(Message message, Exception cause) {
+        message.getMessageProperties().setHeader("x-exception-message", String.valueOf(cause.getMessage()));
+        return confirmedPublisher.send("", entryDeadLetterQueue, message);
+    }
+    
+    // Mesmas propriedades que o SimpleMessageConverter gerava para a String
+    private static Message message(byte[] body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+        properties.setContentEncoding("UTF-8");
+        return new Message(body, properties);
+    }
+}
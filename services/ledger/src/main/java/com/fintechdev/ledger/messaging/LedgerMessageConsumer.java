@@ -1,20 +1,21 @@
 package com.fintechdev.ledger.messaging;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fintechdev.ledger.dto.LedgerEntryRequest;
 import com.fintechdev.ledger.model.LedgerEntry;
+import com.fintechdev.ledger.service.AccountShardingPolicy;
 import com.fintechdev.ledger.service.LedgerService;
 import com.fintechdev.ledger.repository.LedgerEntryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Component
 public class LedgerMessageConsumer {
@@ -22,82 +23,65 @@ public class LedgerMessageConsumer {
     private static final Logger logger = LoggerFactory.getLogger(LedgerMessageConsumer.class);
     private final LedgerService ledgerService;
     private final LedgerEntryRepository repository;
-    private final ObjectMapper objectMapper;
-    private final RabbitTemplate rabbitTemplate;
-    
-    @Value("${saga.exchange:saga}")
-    private String sagaExchange;
+    private final JsonFactory jsonFactory;
+    private final LedgerEventPublisher eventPublisher;
+    private final AccountShardingPolicy shardingPolicy;
     
     public LedgerMessageConsumer(LedgerService ledgerService,
                                 LedgerEntryRepository repository,
                                 ObjectMapper objectMapper,
-                                RabbitTemplate rabbitTemplate) {
+                                LedgerEventPublisher eventPublisher,
+                                AccountShardingPolicy shardingPolicy) {
         this.ledgerService = ledgerService;
         this.repository = repository;
-        this.objectMapper = objectMapper;
-        this.rabbitTemplate = rabbitTemplate;
+        this.jsonFactory = objectMapper.getFactory();
+        this.eventPublisher = eventPublisher;
+        this.shardingPolicy = shardingPolicy;
     }
     
-    @RabbitListener(queues = "ledger.entry.append")
-    public void handleLedgerEntry(String message) {
+    // Desligado quando o modo batch (LedgerBatchMessageConsumer) consome a mesma fila
+    @RabbitListener(queues = "ledger.entry.append", autoStartup = "#{!${ledger.batch.enabled:false}}")
+    public void handleLedgerEntry(Message message) {
         String paymentId = null;
         try {
-            logger.info("Received ledger entry request: {}", message);
-            
-            // Parse JSON message
-            var jsonNode = objectMapper.readTree(message);
-            paymentId = jsonNode.get("paymentId").asText();
-            
-            // Criar entradas DEBIT e CREDIT (double-entry bookkeeping)
-            String transactionId = UUID.randomUUID().toString();
-            
-            // DEBIT - Conta origem
-            LedgerEntryRequest debitRequest = new LedgerEntryRequest();
-            debitRequest.setTransactionId(transactionId + "-debit");
-            debitRequest.setPaymentId(paymentId);
-            debitRequest.setAccountId(jsonNode.get("accountId").asText());
-            debitRequest.setAmount(jsonNode.get("amount").decimalValue());
-            debitRequest.setCurrency(jsonNode.get("currency").asText());
-            debitRequest.setType(LedgerEntry.EntryType.DEBIT);
-            
-            ledgerService.appendEntry(debitRequest);
+            // Parse JSON message (streaming, direto dos bytes)
+            PaymentInitiatedEvent event = PaymentInitiatedEvent.read(jsonFactory, message.getBody());
+            paymentId = event.paymentId();
+            event.requireComplete();
+            logger.info("Received ledger entry request: paymentId={}", paymentId);
             
-            // CREDIT - Conta destino (assumindo uma conta padrão para demonstração)
-            // Em produção, isso viria do request
-            LedgerEntryRequest creditRequest = new LedgerEntryRequest();
-            creditRequest.setTransactionId(transactionId + "-credit");
-            creditRequest.setPaymentId(paymentId);
-            creditRequest.setAccountId("system-account"); // Conta destino
-            creditRequest.setAmount(jsonNode.get("amount").decimalValue());
-            creditRequest.setCurrency(jsonNode.get("currency").asText());
-            creditRequest.setType(LedgerEntry.EntryType.CREDIT);
-            
-            ledgerService.appendEntry(creditRequest);
+            // DEBIT + CREDIT (double-entry) em uma transação; reentregas não duplicam lançamentos
+            ledgerService.appendEntries(event.toEntries(shardingPolicy));
             
             logger.info("Ledger entries processed successfully: paymentId={}", paymentId);
             
             // Publicar evento de sucesso
-            publishLedgerCompleted(paymentId);
+            eventPublisher.publishLedgerCompleted(paymentId);
             
         } catch (Exception e) {
-            logger.error("Error processing ledger entry: {}", message, e);
+            logger.error("Error processing ledger entry: {}", new String(message.getBody(), StandardCharsets.UTF_8), e);
+            
+            if (paymentId == null) {
+                // Sem paymentId não há SAGA para notificar; reprocessar não resolve, vai para a DLQ
+                eventPublisher.publishDeadLetter(message, e).join();
+                return;
+            }
             
-            // Publicar evento de falha
-            if (paymentId != null) {
-                publishLedgerFailed(paymentId, e.getMessage());
+            if (TransientFailures.isTransient(e)) {
+                // Banco indisponível: volta para a fila sem avisar a SAGA (a reentrega é idempotente)
+                throw new RuntimeException("Failed to process ledger entry", e);
             }
             
-            throw new RuntimeException("Failed to process ledger entry", e);
+            // Falha definitiva: avisa a SAGA e confirma a mensagem, sem reentregas que repetiriam o aviso
+            eventPublisher.publishLedgerFailed(paymentId, e.getMessage());
         }
     }
     
     @RabbitListener(queues = "ledger.compensation")
-    public void handleCompensation(String message) {
+    public void handleCompensation(Message message) {
         try {
-            logger.info("Received compensation request: {}", message);
-            
-            var event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
+            String paymentId = CompensationRequestedEvent.read(jsonFactory, message.getBody()).paymentId();
+            logger.info("Received compensation request: paymentId={}", paymentId);
             
             // Buscar todas as entradas do ledger para este paymentId
             List<LedgerEntry> entries = repository.findByPaymentId(paymentId);
@@ -108,6 +92,7 @@ public class LedgerMessageConsumer {
             }
             
             // Criar entradas de compensação (reverter DEBIT/CREDIT)
+            List<LedgerEntryRequest> reversals = new ArrayList<>(entries.size());
             for (LedgerEntry entry : entries) {
                 // Pular entradas de compensação já existentes
                 if (entry.getTransactionId().contains("-compensation")) {
@@ -126,65 +111,20 @@ public class LedgerMessageConsumer {
                         ? LedgerEntry.EntryType.CREDIT 
                         : LedgerEntry.EntryType.DEBIT
                 );
-                
-                ledgerService.appendEntry(compensationRequest);
+                reversals.add(compensationRequest);
             }
             
+            // Reentrega ou compensação parcial: reversões já gravadas caem no ON CONFLICT e a
+            // conclusão é publicada do mesmo jeito
+            ledgerService.appendEntries(reversals);
+            
             logger.info("Ledger compensation completed for paymentId: {}", paymentId);
             
             // Publicar evento de compensação concluída
-            publishCompensationCompleted(paymentId);
+            eventPublisher.publishCompensationCompleted(paymentId);
             
         } catch (Exception e) {
             logger.error("Error compensating ledger entry", e);
         }
     }
-    
-    private void publishLedgerCompleted(String paymentId) {
-        try {
-            ObjectNode event = objectMapper.createObjectNode();
-            event.put("event", "LedgerCompleted");
-            event.put("paymentId", paymentId);
-            event.put("ts", System.currentTimeMillis());
-            
-            String message = objectMapper.writeValueAsString(event);
-            rabbitTemplate.convertAndSend(sagaExchange, "ledger.completed", message);
-            
-        } catch (Exception e) {
-            logger.error("Failed to publish ledger completed event", e);
-        }
-    }
-    
-    private void publishLedgerFailed(String paymentId, String reason) {
-        try {
-            ObjectNode event = objectMapper.createObjectNode();
-            event.put("event", "LedgerFailed");
-            event.put("paymentId", paymentId);
-            event.put("reason", reason);
-            event.put("ts", System.currentTimeMillis());
-            
-            String message = objectMapper.writeValueAsString(event);
-            rabbitTemplate.convertAndSend(sagaExchange, "ledger.failed", message);
-            
-        } catch (Exception e) {
-            logger.error("Failed to publish ledger failed event", e);
-        }
-    }
-    
-    private void publishCompensationCompleted(String paymentId) {
-        try {
-            ObjectNode event = objectMapper.createObjectNode();
-            event.put("event", "CompensationCompleted");
-            event.put("paymentId", paymentId);
-            event.put("service", "ledger");
-            event.put("ts", System.currentTimeMillis());
-            
-            String message = objectMapper.writeValueAsString(event);
-            rabbitTemplate.convertAndSend(sagaExchange, "compensation.completed", message);
-            
-        } catch (Exception e) {
-            logger.error("Failed to publish compensation completed event", e);
-        }
-    }
 }
-
@@ -0,0 +1,79 @@
+package com.fintechdev.ledger.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fintechdev.ledger.dto.LedgerEntryRequest;
+import com.fintechdev.ledger.model.LedgerEntry;
+import com.fintechdev.ledger.service.AccountShardingPolicy;
+import com.fintechdev.ledger.service.LedgerService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Campos do PaymentInitiated usados pelo ledger, lidos em streaming direto do corpo da mensagem
+ * (sem String intermediária nem árvore {@code JsonNode}). Campos ausentes ficam nulos para que o
+ * consumidor ainda conheça o paymentId ao reportar a falha; veja {@link #requireComplete()}.
+ */
+public record PaymentInitiatedEvent(String paymentId, String accountId, BigDecimal amount, String currency) {
+
+    public static PaymentInitiatedEvent read(JsonFactory jsonFactory, byte[] body) throws IOException {
+        String paymentId = null;
+        String accountId = null;
+        BigDecimal amount = null;
+        String currency = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "PaymentInitiated must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "paymentId" -> paymentId = parser.getValueAsString();
+                    case "accountId" -> accountId = parser.getValueAsString();
+                    // amount chega como string no PaymentInitiated; o formato numérico também é aceito
+                    case "amount" -> amount = value == JsonToken.VALUE_STRING
+                        ? new BigDecimal(parser.getText())
+                        : value != null && value.isNumeric() ? parser.getDecimalValue() : null;
+                    case "currency" -> currency = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new PaymentInitiatedEvent(paymentId, accountId, amount, currency);
+    }
+
+    public PaymentInitiatedEvent requireComplete() {
+        if (paymentId == null || accountId == null || amount == null || currency == null) {
+            throw new IllegalArgumentException("Incomplete PaymentInitiated event: " + this);
+        }
+        return this;
+    }
+
+    /**
+     * Lançamentos double-entry do pagamento (DEBIT na conta de origem, CREDIT na conta destino).
+     * O transactionId deriva do paymentId, então uma reentrega cai no {@code ON CONFLICT} de
+     * {@link LedgerService#appendEntries} em vez de duplicar lançamentos, nos dois modos de consumo.
+     */
+    public List<LedgerEntryRequest> toEntries(AccountShardingPolicy shardingPolicy) {
+        return List.of(
+            entry(paymentId + "-debit", accountId, LedgerEntry.EntryType.DEBIT),
+            // Conta destino padrão para demonstração (sub-conta); em produção viria do request
+            entry(paymentId + "-credit", shardingPolicy.resolveWriteAccount("system-account", paymentId), LedgerEntry.EntryType.CREDIT));
+    }
+
+    private LedgerEntryRequest entry(String transactionId, String entryAccountId, LedgerEntry.EntryType type) {
+        LedgerEntryRequest request = new LedgerEntryRequest();
+        request.setTransactionId(transactionId);
+        request.setPaymentId(paymentId);
+        request.setAccountId(entryAccountId);
+        request.setAmount(amount);
+        request.setCurrency(currency);
+        request.setType(type);
+        return request;
+    }
+}
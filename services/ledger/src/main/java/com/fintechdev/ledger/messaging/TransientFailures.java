@@ -0,0 +1,29 @@
+package com.fintechdev.ledger.messaging;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Separa falhas temporárias do banco (conexão, deadlock, timeout) das definitivas (mensagem ou dado
+ * inválido). As temporárias voltam para a fila sem avisar a SAGA, porque a reentrega é idempotente;
+ * só as definitivas viram {@code ledger.failed}.
+ */
+final class TransientFailures {
+
+    private TransientFailures() {
+    }
+
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
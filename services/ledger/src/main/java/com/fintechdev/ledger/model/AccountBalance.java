@@ -0,0 +1,102 @@
+package com.fintechdev.ledger.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Projeção materializada do saldo por conta e moeda (CREDIT soma, DEBIT subtrai).
+ * Contas quentes são divididas em sub-contas pelo {@code AccountShardingPolicy}, cada uma com sua
+ * linha; o saldo da conta lógica soma as linhas das sub-contas.
+ */
+@Entity
+@Table(name = "account_balances")
+@IdClass(AccountBalance.Key.class)
+public class AccountBalance {
+    
+    @Id
+    private String accountId;
+    
+    @Id
+    @Column(length = 3)
+    private String currency;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+    
+    @Column(nullable = false)
+    private Instant updatedAt;
+    
+    // Getters and Setters
+    public String getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public static class Key implements Serializable {
+        private String accountId;
+        private String currency;
+        
+        public Key() {
+        }
+        
+        public Key(String accountId, String currency) {
+            this.accountId = accountId;
+            this.currency = currency;
+        }
+        
+        public String getAccountId() {
+            return accountId;
+        }
+        
+        public String getCurrency() {
+            return currency;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(accountId, key.accountId)
+                && Objects.equals(currency, key.currency);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, currency);
+        }
+    }
+}
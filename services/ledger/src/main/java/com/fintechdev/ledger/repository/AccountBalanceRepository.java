@@ -0,0 +1,41 @@
+package com.fintechdev.ledger.repository;
+
+import com.fintechdev.ledger.model.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceRepository extends JpaRepository<AccountBalance, AccountBalance.Key> {
+    
+    // Upsert incremental: soma o delta na linha sem ler antes
+    @Modifying
+    @Query(value = "INSERT INTO account_balances (account_id, currency, balance, updated_at) " +
+                   "VALUES (:accountId, :currency, :delta, now()) " +
+                   "ON CONFLICT (account_id, currency) " +
+                   "DO UPDATE SET balance = account_balances.balance + EXCLUDED.balance, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void applyDelta(String accountId, String currency, BigDecimal delta);
+    
+    @Query("SELECT COALESCE(SUM(b.balance), 0) FROM AccountBalance b WHERE b.accountId IN :accountIds AND b.currency = :currency")
+    BigDecimal sumBalance(Collection<String> accountIds, String currency);
+    
+    List<AccountBalance> findByAccountIdIn(Collection<String> accountIds);
+    
+    // Reconstrói a projeção a partir do histórico (usado apenas quando a tabela está vazia)
+    @Modifying
+    @Query(value = "INSERT INTO account_balances (account_id, currency, balance, updated_at) " +
+                   "SELECT account_id, currency, SUM(CASE WHEN type = 'CREDIT' THEN amount ELSE -amount END), now() " +
+                   "FROM ledger_entries GROUP BY account_id, currency",
+           nativeQuery = true)
+    int rebuildFromLedgerEntries();
+    
+    @Modifying
+    @Query(value = "LOCK TABLE account_balances IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+}
@@ -4,6 +4,7 @@ import com.fintechdev.ledger.model.LedgerEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -12,6 +13,8 @@ import java.util.UUID;
 public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
     Optional<LedgerEntry> findByTransactionId(String transactionId);
     List<LedgerEntry> findByAccountIdOrderByCreatedAtDesc(String accountId);
+    // Histórico de uma conta lógica com sub-contas (ver AccountShardingPolicy)
+    List<LedgerEntry> findByAccountIdInOrderByCreatedAtDesc(Collection<String> accountIds);
     List<LedgerEntry> findByPaymentId(String paymentId);
 }
 
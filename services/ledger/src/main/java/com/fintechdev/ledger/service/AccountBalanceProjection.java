@@ -0,0 +1,106 @@
+package com.fintechdev.ledger.service;
+
+import com.fintechdev.ledger.dto.LedgerEntryRequest;
+import com.fintechdev.ledger.model.AccountBalance;
+import com.fintechdev.ledger.model.LedgerEntry;
+import com.fintechdev.ledger.repository.AccountBalanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mantém a tabela {@code account_balances} na mesma transação que grava as entradas do ledger.
+ * Contas quentes (ex.: {@code system-account}) já chegam divididas em sub-contas pelo
+ * {@link AccountShardingPolicy}, então cada sub-conta é uma linha própria e escritores concorrentes
+ * não disputam a mesma linha.
+ */
+@Service
+public class AccountBalanceProjection implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountBalanceProjection.class);
+
+    // Ordem fixa dos upserts dentro de um lote evita deadlock entre transações concorrentes
+    private static final Comparator<AccountBalance.Key> KEY_ORDER = Comparator
+        .comparing(AccountBalance.Key::getAccountId)
+        .thenComparing(AccountBalance.Key::getCurrency);
+
+    private final AccountBalanceRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountShardingPolicy shardingPolicy;
+
+    public AccountBalanceProjection(AccountBalanceRepository repository,
+                                    TransactionTemplate transactionTemplate,
+                                    AccountShardingPolicy shardingPolicy) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.shardingPolicy = shardingPolicy;
+    }
+
+    /**
+     * Aplica uma entrada na projeção. Deve ser chamado dentro da transação que grava a entrada.
+     */
+    public void apply(LedgerEntryRequest request) {
+        repository.applyDelta(request.getAccountId(), request.getCurrency(), signedAmount(request));
+    }
+
+    /**
+     * Aplica várias entradas, somando antes os deltas que caem na mesma linha da projeção.
+     */
+    public void applyAll(Collection<LedgerEntryRequest> requests) {
+        Map<AccountBalance.Key, BigDecimal> deltas = new TreeMap<>(KEY_ORDER);
+        for (LedgerEntryRequest request : requests) {
+            AccountBalance.Key key = new AccountBalance.Key(request.getAccountId(), request.getCurrency());
+            deltas.merge(key, signedAmount(request), BigDecimal::add);
+        }
+        deltas.forEach((key, delta) -> repository.applyDelta(key.getAccountId(), key.getCurrency(), delta));
+    }
+
+    /**
+     * Saldo da conta lógica: para contas com sharding, soma de todas as sub-contas.
+     */
+    public BigDecimal getBalance(String accountId, String currency) {
+        return repository.sumBalance(shardingPolicy.physicalAccounts(accountId), currency);
+    }
+
+    /**
+     * Saldo por moeda da conta lógica.
+     */
+    public Map<String, BigDecimal> getBalances(String accountId) {
+        Map<String, BigDecimal> balances = new TreeMap<>();
+        for (AccountBalance row : repository.findByAccountIdIn(shardingPolicy.physicalAccounts(accountId))) {
+            balances.merge(row.getCurrency(), row.getBalance(), BigDecimal::add);
+        }
+        return balances;
+    }
+
+    /**
+     * Popula a projeção a partir de {@code ledger_entries} na primeira subida, antes dos listeners iniciarem.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.lockForRebuild();
+            if (repository.count() > 0) {
+                return;
+            }
+            int rows = repository.rebuildFromLedgerEntries();
+            if (rows > 0) {
+                logger.info("Account balance projection rebuilt from ledger entries: rows={}", rows);
+            }
+        });
+    }
+
+    private static BigDecimal signedAmount(LedgerEntryRequest request) {
+        return request.getType() == LedgerEntry.EntryType.CREDIT
+            ? request.getAmount()
+            : request.getAmount().negate();
+    }
+}
@@ -0,0 +1,54 @@
+package com.fintechdev.ledger.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Divide contas quentes em sub-contas ({@code system-account#0}..{@code #N-1}).
+ * A escrita vai para a sub-conta escolhida pelo hash do paymentId, então pagamentos
+ * concorrentes não serializam na mesma chave; leituras somam todas as sub-contas.
+ */
+@Component
+public class AccountShardingPolicy {
+
+    public static final String SHARD_SEPARATOR = "#";
+
+    private final Set<String> shardedAccounts;
+    private final int shards;
+
+    public AccountShardingPolicy(@Value("${ledger.sharding.accounts:system-account}") Set<String> shardedAccounts,
+                                 @Value("${ledger.sharding.shards:8}") int shards) {
+        this.shardedAccounts = shardedAccounts;
+        this.shards = shards;
+    }
+
+    /**
+     * Conta física onde a entrada do pagamento deve ser gravada.
+     */
+    public String resolveWriteAccount(String accountId, String paymentId) {
+        if (shards <= 1 || !shardedAccounts.contains(accountId)) {
+            return accountId;
+        }
+        return accountId + SHARD_SEPARATOR + Math.floorMod(paymentId.hashCode(), shards);
+    }
+
+    /**
+     * Contas físicas que compõem a conta lógica, incluindo a própria conta lógica
+     * (entradas gravadas antes do sharding ser ativado).
+     */
+    public List<String> physicalAccounts(String accountId) {
+        if (shards <= 1 || !shardedAccounts.contains(accountId)) {
+            return List.of(accountId);
+        }
+        List<String> accounts = new ArrayList<>(shards + 1);
+        accounts.add(accountId);
+        for (int shard = 0; shard < shards; shard++) {
+            accounts.add(accountId + SHARD_SEPARATOR + shard);
+        }
+        return accounts;
+    }
+}
@@ -5,17 +5,39 @@ import com.fintechdev.ledger.model.LedgerEntry;
 import com.fintechdev.ledger.repository.LedgerEntryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 @Service
 public class LedgerService {
     
     private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+    // Limite de linhas por INSERT multi-row (8 parâmetros por linha, máx. 65535 no protocolo do Postgres)
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    private static final String INSERT_PREFIX =
+        "INSERT INTO ledger_entries (id, transaction_id, payment_id, account_id, amount, currency, type, created_at) VALUES ";
+    private static final String INSERT_SUFFIX =
+        " ON CONFLICT (transaction_id) DO NOTHING RETURNING transaction_id";
+    
     private final LedgerEntryRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountBalanceProjection balanceProjection;
     
-    public LedgerService(LedgerEntryRepository repository) {
+    public LedgerService(LedgerEntryRepository repository,
+                         JdbcTemplate jdbcTemplate,
+                         AccountBalanceProjection balanceProjection) {
         this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.balanceProjection = balanceProjection;
     }
     
     @Transactional
@@ -37,10 +59,53 @@ public class LedgerService {
         entry.setType(request.getType());
         
         LedgerEntry saved = repository.save(entry);
+        balanceProjection.apply(request);
         logger.info("Ledger entry created: transactionId={}, accountId={}, amount={}, type={}", 
             saved.getTransactionId(), saved.getAccountId(), saved.getAmount(), saved.getType());
         
         return saved;
     }
+    
+    /**
+     * Grava várias entradas em uma única transação com INSERTs multi-row.
+     * A idempotência vem da constraint única de {@code transactionId} ({@code ON CONFLICT DO NOTHING}),
+     * sem leitura prévia: entradas já existentes são ignoradas e não aparecem no retorno.
+     *
+     * @return os transactionIds efetivamente inseridos
+     */
+    @Transactional
+    public Set<String> appendEntries(List<LedgerEntryRequest> requests) {
+        Set<String> inserted = new HashSet<>();
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        
+        for (int from = 0; from < requests.size(); from += MAX_ROWS_PER_INSERT) {
+            List<LedgerEntryRequest> chunk = requests.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, requests.size()));
+            
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            List<Object> args = new ArrayList<>(chunk.size() * 8);
+            for (int i = 0; i < chunk.size(); i++) {
+                LedgerEntryRequest request = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?)");
+                args.add(UUID.randomUUID());
+                args.add(request.getTransactionId());
+                args.add(request.getPaymentId());
+                args.add(request.getAccountId());
+                args.add(request.getAmount());
+                args.add(request.getCurrency());
+                args.add(request.getType().name());
+                args.add(createdAt);
+            }
+            sql.append(INSERT_SUFFIX);
+            
+            inserted.addAll(jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray()));
+        }
+        
+        // Só entradas realmente inseridas alteram o saldo (reentregas caem no ON CONFLICT)
+        balanceProjection.applyAll(requests.stream()
+            .filter(request -> inserted.contains(request.getTransactionId()))
+            .toList());
+        
+        logger.info("Ledger entries batch appended: requested={}, inserted={}", requests.size(), inserted.size());
+        return inserted;
+    }
 }
-
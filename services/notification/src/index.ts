@@ -40,6 +40,11 @@ class NotificationService {
         // Bind queue to exchange
         await ch.bindQueue(queue.queue, 'notifications', 'payment.created');
         
+        // Direct binding on the consolidated exchange (the broker delivers a single copy
+        // while the legacy notifications/payment.created binding is still in place)
+        await ch.assertExchange('payment.events', 'topic', { durable: true });
+        await ch.bindQueue(queue.queue, 'payment.events', 'payment.initiated');
+        
         console.log('Connected to RabbitMQ and set up queues');
         return;
       } catch (error) {
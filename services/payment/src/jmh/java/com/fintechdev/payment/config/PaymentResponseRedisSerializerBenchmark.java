@@ -0,0 +1,54 @@
+package com.fintechdev.payment.config;
+
+import com.fintechdev.payment.dto.PaymentResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codec de valores do Redis (idempotência e status de pagamento) nos dois modos de
+ * {@code idempotency.codec}, com o serializer montado pelo próprio {@link RedisConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentResponseRedisSerializerBenchmark {
+
+    @Param({"binary", "json"})
+    public String codec;
+
+    private PaymentResponseRedisSerializer serializer;
+    private PaymentResponse response;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        serializer = (PaymentResponseRedisSerializer) new RedisConfig().redisTemplate(null, codec).getValueSerializer();
+        response = new PaymentResponse(UUID.randomUUID().toString(), "PROCESSING");
+        serialized = serializer.serialize(response);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(response);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+}
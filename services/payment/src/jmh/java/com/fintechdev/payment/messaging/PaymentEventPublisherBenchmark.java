@@ -0,0 +1,96 @@
+package com.fintechdev.payment.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintechdev.payment.dto.PaymentRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codificação dos eventos publicados pelo payment-service: PaymentInitiated gravado no outbox a cada
+ * {@code POST /payments} e a mensagem de CompensationRequested. Os benchmarks {@code jackson*}
+ * reproduzem o caminho anterior ({@code HashMap} + {@code ObjectMapper} + conversão da String) como
+ * referência para o {@link PaymentEventCodec}; compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentEventPublisherBenchmark {
+
+    private PaymentEventPublisher publisher;
+    private ObjectMapper objectMapper;
+    private SimpleMessageConverter messageConverter;
+    private PaymentRequest request;
+    private String paymentId;
+
+    @Setup
+    public void setUp() {
+        // Rabbit, outbox e JDBC não participam da codificação
+        publisher = new PaymentEventPublisher(null, null, null);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messageConverter = new SimpleMessageConverter();
+        request = new PaymentRequest();
+        request.setAccountId("acc-benchmark-0001");
+        request.setAmount(new BigDecimal("1234.56"));
+        request.setCurrency("BRL");
+        paymentId = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public byte[] paymentInitiatedPayload() {
+        return publisher.paymentInitiatedPayload(paymentId, request);
+    }
+
+    @Benchmark
+    public byte[] jacksonPaymentInitiatedPayload() throws JsonProcessingException {
+        Map<String, Object> event = new HashMap<>();
+        event.put("event", PaymentEventPublisher.PAYMENT_INITIATED);
+        event.put("paymentId", paymentId);
+        event.put("accountId", request.getAccountId());
+        event.put("amount", request.getAmount().toString());
+        event.put("currency", request.getCurrency());
+        event.put("ts", System.currentTimeMillis());
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public Message compensationRequestedMessage() {
+        return PaymentEventCodec.message(
+            PaymentEventCodec.compensationRequested(paymentId, "ledger", request, System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public Message jacksonCompensationRequestedMessage() throws JsonProcessingException {
+        Map<String, Object> event = new HashMap<>();
+        event.put("event", "CompensationRequested");
+        event.put("paymentId", paymentId);
+        event.put("service", "ledger");
+        event.put("accountId", request.getAccountId());
+        event.put("amount", request.getAmount().toString());
+        event.put("currency", request.getCurrency());
+        event.put("ts", System.currentTimeMillis());
+        // Mesmo caminho do convertAndSend(String): String -> bytes no conversor padrão
+        return messageConverter.toMessage(objectMapper.writeValueAsString(event), new MessageProperties());
+    }
+}
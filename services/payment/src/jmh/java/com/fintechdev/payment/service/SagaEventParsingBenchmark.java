@@ -0,0 +1,78 @@
+package com.fintechdev.payment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintechdev.payment.messaging.SagaEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing dos eventos de conclusão/falha consumidos pelo {@link SagaOrchestrator}, no formato
+ * publicado pelo ledger-service e pelo balance-service. Os benchmarks {@code tree*} reproduzem o
+ * caminho anterior (corpo decodificado em String + {@code readTree}) como referência para o
+ * {@link SagaEvent} em streaming.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SagaEventParsingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] completedEvent;
+    private byte[] failedEvent;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String paymentId = UUID.randomUUID().toString();
+        long ts = System.currentTimeMillis();
+        completedEvent = ("{\"event\":\"LedgerCompleted\",\"paymentId\":\"" + paymentId + "\",\"ts\":" + ts + "}")
+            .getBytes(StandardCharsets.UTF_8);
+        failedEvent = ("{\"event\":\"LedgerFailed\",\"paymentId\":\"" + paymentId
+            + "\",\"reason\":\"Insufficient funds for account acc-benchmark-0001\",\"ts\":" + ts + "}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String completedEvent() throws IOException {
+        return SagaEvent.read(objectMapper.getFactory(), completedEvent).paymentId();
+    }
+
+    @Benchmark
+    public void failedEvent(Blackhole blackhole) throws IOException {
+        SagaEvent event = SagaEvent.read(objectMapper.getFactory(), failedEvent);
+        blackhole.consume(event.paymentId());
+        blackhole.consume(event.reasonOrDefault());
+    }
+
+    @Benchmark
+    public String treeCompletedEvent() throws IOException {
+        JsonNode event = objectMapper.readTree(new String(completedEvent, StandardCharsets.UTF_8));
+        return event.get("paymentId").asText();
+    }
+
+    @Benchmark
+    public void treeFailedEvent(Blackhole blackhole) throws IOException {
+        JsonNode event = objectMapper.readTree(new String(failedEvent, StandardCharsets.UTF_8));
+        blackhole.consume(event.get("paymentId").asText());
+        blackhole.consume(event.has("reason") ? event.get("reason").asText() : "Unknown error");
+    }
+}
@@ -0,0 +1,123 @@
+package com.fintechdev.payment.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substitui ledger-service e balance-service no modo embarcado: responde cada PaymentInitiated com
+ * LedgerCompleted/BalanceCompleted no exchange {@code saga}, e cada CompensationRequested com
+ * CompensationCompleted. Assim a medição isola o payment-service (HTTP, outbox, SAGA).
+ * <p>
+ * Uma fração {@code failureRatio} dos pagamentos recebe BalanceFailed em vez de BalanceCompleted,
+ * depois do LedgerCompleted, exercitando o caminho de compensação.
+ */
+final class DownstreamStandIn implements AutoCloseable {
+
+    private static final String SAGA_EXCHANGE = "saga";
+    // BalanceFailed chega depois do LedgerCompleted, como com os serviços reais
+    private static final long FAILURE_DELAY_MS = 200;
+
+    private final CachingConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final SimpleMessageListenerContainer container;
+    private final ScheduledExecutorService delayed = Executors.newScheduledThreadPool(2);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final double failureRatio;
+    private final long latencyMs;
+
+    DownstreamStandIn(String host, int port, String username, String password,
+                      double failureRatio, Duration latency) {
+        this.failureRatio = failureRatio;
+        this.latencyMs = latency.toMillis();
+        this.connectionFactory = new CachingConnectionFactory(host, port);
+        connectionFactory.setUsername(username);
+        connectionFactory.setPassword(password);
+        this.rabbitTemplate = new RabbitTemplate(connectionFactory);
+
+        // Exchange "saga" é declarado pelo payment-service; PaymentInitiated chega nele pelo
+        // binding legado (payment.events.legacy-bindings) ou pelo publish-mode legacy
+        TopicExchange sagaExchange = new TopicExchange(SAGA_EXCHANGE, true, false);
+        Queue queue = new AnonymousQueue();
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+        admin.declareExchange(sagaExchange);
+        admin.declareQueue(queue);
+        for (Binding binding : new Binding[] {
+                BindingBuilder.bind(queue).to(sagaExchange).with("payment.initiated"),
+                BindingBuilder.bind(queue).to(sagaExchange).with("compensation.requested")}) {
+            admin.declareBinding(binding);
+        }
+
+        this.container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(queue);
+        container.setAcknowledgeMode(AcknowledgeMode.NONE);
+        container.setConcurrentConsumers(4);
+        container.setPrefetchCount(250);
+        container.setMessageListener(this::onMessage);
+        container.start();
+    }
+
+    private void onMessage(Message message) {
+        String paymentId;
+        try {
+            paymentId = objectMapper.readTree(message.getBody()).get("paymentId").asText();
+        } catch (IOException e) {
+            return;
+        }
+
+        if ("compensation.requested".equals(message.getMessageProperties().getReceivedRoutingKey())) {
+            later(latencyMs, () -> reply("compensation.completed", "CompensationCompleted", paymentId));
+            return;
+        }
+
+        later(latencyMs, () -> reply("ledger.completed", "LedgerCompleted", paymentId));
+        if (ThreadLocalRandom.current().nextDouble() < failureRatio) {
+            later(latencyMs + FAILURE_DELAY_MS, () -> reply("balance.failed", "BalanceFailed", paymentId));
+        } else {
+            later(latencyMs, () -> reply("balance.completed", "BalanceCompleted", paymentId));
+        }
+    }
+
+    private void later(long delayMs, Runnable action) {
+        if (delayMs <= 0) {
+            action.run();
+        } else {
+            delayed.schedule(action, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reply(String routingKey, String eventType, String paymentId) {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("event", eventType);
+        event.put("paymentId", paymentId);
+        if ("BalanceFailed".equals(eventType)) {
+            event.put("reason", "Load test injected failure");
+        }
+        event.put("ts", System.currentTimeMillis());
+        rabbitTemplate.convertAndSend(SAGA_EXCHANGE, routingKey, event.toString());
+    }
+
+    @Override
+    public void close() {
+        container.stop();
+        delayed.shutdownNow();
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,100 @@
+package com.fintechdev.payment.loadtest;
+
+import com.fintechdev.payment.PaymentServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.lifecycle.Startables;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Onde a carga roda. Embarcado (padrão): Postgres, Redis e RabbitMQ em containers (as mesmas imagens
+ * do docker-compose, então rodam offline depois do primeiro pull), payment-service na própria JVM
+ * e {@link DownstreamStandIn} no lugar de ledger/balance. Externo ({@code --external}): um stack já
+ * no ar, por exemplo o docker-compose, com os serviços reais.
+ */
+final class LoadTestEnvironment implements AutoCloseable {
+
+    private final URI baseUri;
+    private final JdbcTemplate jdbcTemplate;
+    private final AutoCloseable[] resources;
+
+    private LoadTestEnvironment(URI baseUri, JdbcTemplate jdbcTemplate, AutoCloseable... resources) {
+        this.baseUri = baseUri;
+        this.jdbcTemplate = jdbcTemplate;
+        this.resources = resources;
+    }
+
+    static LoadTestEnvironment start(LoadTestOptions options) {
+        if (options.external()) {
+            return new LoadTestEnvironment(options.baseUri(),
+                jdbcTemplate(options.jdbcUrl(), options.jdbcUser(), options.jdbcPassword()));
+        }
+
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("payment")
+            .withCommand("postgres", "-c", "max_connections=200");
+        RabbitMQContainer rabbitmq = new RabbitMQContainer("rabbitmq:3-management");
+        GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+        Startables.deepStart(postgres, rabbitmq, redis).join();
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", postgres.getJdbcUrl());
+        properties.put("spring.datasource.username", postgres.getUsername());
+        properties.put("spring.datasource.password", postgres.getPassword());
+        properties.put("spring.rabbitmq.host", rabbitmq.getHost());
+        properties.put("spring.rabbitmq.port", rabbitmq.getAmqpPort());
+        properties.put("spring.rabbitmq.username", rabbitmq.getAdminUsername());
+        properties.put("spring.rabbitmq.password", rabbitmq.getAdminPassword());
+        properties.put("spring.data.redis.host", redis.getHost());
+        properties.put("spring.data.redis.port", redis.getMappedPort(6379));
+        // Log por mensagem e export de spans mediriam o console e o Zipkin, não o serviço
+        properties.put("logging.level.com.fintechdev", "WARN");
+        properties.put("logging.level.org.springframework.amqp", "WARN");
+        properties.put("management.tracing.enabled", false);
+        properties.putAll(options.appProperties());
+
+        ConfigurableApplicationContext application = new SpringApplicationBuilder(PaymentServiceApplication.class)
+            .properties(properties)
+            .run();
+        int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+        DownstreamStandIn downstream = new DownstreamStandIn(rabbitmq.getHost(), rabbitmq.getAmqpPort(),
+            rabbitmq.getAdminUsername(), rabbitmq.getAdminPassword(), options.failureRatio(), options.downstreamLatency());
+
+        return new LoadTestEnvironment(URI.create("http://localhost:" + port),
+            jdbcTemplate(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()),
+            downstream, application, redis, rabbitmq, postgres);
+    }
+
+    URI baseUri() {
+        return baseUri;
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    private static JdbcTemplate jdbcTemplate(String url, String username, String password) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+    }
+
+    @Override
+    public void close() {
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Failed to stop " + resource + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.fintechdev.payment.loadtest;
+
+/**
+ * Teste de carga fim a fim do payment-service: para cada taxa em {@code --rates}, dispara
+ * {@code POST /payments} em malha aberta por {@code --duration}, acompanha cada SAGA até o status
+ * terminal em {@code saga_states} e imprime histogramas de latência (HTTP e SAGA) e o teto de
+ * throughput sustentado.
+ * <p>
+ * Execução (a partir de {@code services/payment}):
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rates=100,200,400 --duration=60s"
+ * </pre>
+ * Outras opções: {@code --warmup}, {@code --drain-timeout}, {@code --failure-ratio},
+ * {@code --downstream-latency}, {@code --app.<propriedade>=valor} e, para um stack já no ar,
+ * {@code --external --base-url=... --jdbc-url=...}.
+ */
+public final class LoadTestHarness {
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LoadTestReport report = new LoadTestReport();
+
+        try (LoadTestEnvironment environment = LoadTestEnvironment.start(options);
+             SagaTracker tracker = new SagaTracker(environment.jdbcTemplate())) {
+            OpenLoopDriver driver = new OpenLoopDriver(environment.baseUri(), tracker);
+            tracker.start();
+
+            // Aquecimento (JIT, pools de conexão) fora da medição
+            if (!options.warmup().isZero()) {
+                System.out.printf("Warmup: %d payments/s for %ds%n", options.rates().get(0), options.warmup().toSeconds());
+                driver.run(options.rates().get(0), options.warmup(), false);
+            }
+
+            for (int rate : options.rates()) {
+                System.out.printf("Step: %d payments/s for %ds%n", rate, options.duration().toSeconds());
+                OpenLoopDriver.StepRequests requests = driver.run(rate, options.duration(), true);
+                report.add(requests, tracker.drain(options.drainTimeout()));
+            }
+        }
+
+        report.print(System.out);
+        System.exit(0);
+    }
+}
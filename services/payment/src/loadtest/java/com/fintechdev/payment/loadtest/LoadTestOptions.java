@@ -0,0 +1,81 @@
+package com.fintechdev.payment.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parâmetros do harness, no formato {@code --nome=valor}. Opções {@code --app.<propriedade>=valor}
+ * são repassadas ao payment-service embarcado (ex.: {@code --app.saga.write-behind.enabled=true}).
+ */
+record LoadTestOptions(List<Integer> rates,
+                       Duration duration,
+                       Duration warmup,
+                       Duration drainTimeout,
+                       boolean external,
+                       URI baseUri,
+                       String jdbcUrl,
+                       String jdbcUser,
+                       String jdbcPassword,
+                       double failureRatio,
+                       Duration downstreamLatency,
+                       Map<String, Object> appProperties) {
+
+    private static final String APP_PREFIX = "app.";
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        Map<String, Object> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg.substring(2) : arg.substring(2, separator);
+            String value = separator < 0 ? "true" : arg.substring(separator + 1);
+            if (name.startsWith(APP_PREFIX)) {
+                appProperties.put(name.substring(APP_PREFIX.length()), value);
+            } else {
+                values.put(name, value);
+            }
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+            Arrays.stream(values.getOrDefault("rates", "100,200,400").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList(),
+            duration(values.getOrDefault("duration", "60s")),
+            duration(values.getOrDefault("warmup", "15s")),
+            // Acima do saga.timeout.seconds (30s): SAGAs presas aparecem como expiradas, não como perdidas
+            duration(values.getOrDefault("drain-timeout", "60s")),
+            Boolean.parseBoolean(values.getOrDefault("external", "false")),
+            URI.create(values.getOrDefault("base-url", "http://localhost:8080")),
+            values.getOrDefault("jdbc-url", "jdbc:postgresql://localhost:5432/payment"),
+            values.getOrDefault("jdbc-user", "postgres"),
+            values.getOrDefault("jdbc-password", "postgres"),
+            Double.parseDouble(values.getOrDefault("failure-ratio", "0")),
+            duration(values.getOrDefault("downstream-latency", "0ms")),
+            appProperties);
+
+        if (options.rates().isEmpty() || options.rates().stream().anyMatch(rate -> rate <= 0)) {
+            throw new IllegalArgumentException("--rates must list positive requests/second values");
+        }
+        return options;
+    }
+
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Invalid duration: " + value);
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.fintechdev.payment.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tabela por etapa (taxa alvo) e o teto de throughput sustentado. Latências em milissegundos;
+ * "corrected" mede a partir do início pretendido da requisição, "uncorrected" a partir do envio real.
+ */
+final class LoadTestReport {
+
+    // Vazão de SAGAs abaixo disso (em relação à taxa alvo) indica que o sistema não acompanhou a carga
+    private static final double SUSTAINED_RATIO = 0.95;
+
+    private final List<Step> steps = new ArrayList<>();
+
+    static Histogram newHistogram() {
+        // Auto-redimensionável, em microssegundos, 3 dígitos significativos
+        return new Histogram(3);
+    }
+
+    void add(OpenLoopDriver.StepRequests requests, SagaTracker.StepSagas sagas) {
+        steps.add(new Step(requests, sagas));
+    }
+
+    void print(PrintStream out) {
+        out.println();
+        out.println("== POST /payments (HTTP) ==");
+        out.printf("%8s %10s %9s %8s %10s | %-33s | %-33s%n", "target", "achieved", "accepted", "failed", "lag max",
+            "corrected p50/p99/p999/max", "uncorrected p50/p99/p999/max");
+        for (Step step : steps) {
+            OpenLoopDriver.StepRequests r = step.requests();
+            out.printf("%8d %10.1f %9d %8d %10.1f | %-33s | %-33s%n", r.targetRate(), r.achievedRate(), r.accepted(),
+                r.failed(), r.maxSendLagMicros() / 1000.0, percentiles(r.corrected()), percentiles(r.uncorrected()));
+        }
+
+        out.println();
+        out.println("== SAGA end to end (saga_states) ==");
+        out.printf("%8s %10s %9s %11s %10s | %-33s | %-33s%n", "target", "sagas/s", "completed", "compensated",
+            "unfinished", "corrected p50/p99/p999/max", "uncorrected p50/p99/p999/max");
+        for (Step step : steps) {
+            SagaTracker.StepSagas s = step.sagas();
+            out.printf("%8d %10.1f %9d %11d %10d | %-33s | %-33s%n", step.requests().targetRate(), step.sagaRate(),
+                s.completed(), s.compensated(), s.unfinished(), percentiles(s.corrected()), percentiles(s.uncorrected()));
+        }
+
+        out.println();
+        steps.stream()
+            .filter(Step::sustained)
+            .mapToInt(step -> step.requests().targetRate())
+            .max()
+            .ifPresentOrElse(
+                rate -> out.printf("Sustained throughput ceiling: %d payments/s (all sagas terminal, >= %.0f%% of target)%n",
+                    rate, SUSTAINED_RATIO * 100),
+                () -> out.println("No step was sustained; lower --rates to find the ceiling"));
+    }
+
+    private static String percentiles(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "-";
+        }
+        return String.format("%.1f/%.1f/%.1f/%.1f",
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0);
+    }
+
+    private record Step(OpenLoopDriver.StepRequests requests, SagaTracker.StepSagas sagas) {
+
+        double sagaRate() {
+            long terminal = sagas.completed() + sagas.compensated();
+            long elapsedMicros = sagas.lastTerminalMicros() - requests.startMicros();
+            return terminal == 0 || elapsedMicros <= 0 ? 0 : terminal * 1e6 / elapsedMicros;
+        }
+
+        boolean sustained() {
+            return requests.failed() == 0
+                && sagas.unfinished() == 0
+                && sagaRate() >= requests.targetRate() * SUSTAINED_RATIO;
+        }
+    }
+}
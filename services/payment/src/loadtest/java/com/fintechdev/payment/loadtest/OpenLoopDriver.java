@@ -0,0 +1,123 @@
+package com.fintechdev.payment.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gera {@code POST /payments} em malha aberta: a requisição {@code i} tem início pretendido em
+ * {@code início + i / taxa}, independente de quanto as anteriores demoram. A latência medida a partir
+ * desse instante (e não do envio real) inclui o tempo que a requisição esperaria numa fila do cliente,
+ * que é a correção de coordinated omission.
+ */
+final class OpenLoopDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int ACCOUNTS = 1000;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI paymentsUri;
+    private final SagaTracker tracker;
+
+    OpenLoopDriver(URI baseUri, SagaTracker tracker) {
+        this.paymentsUri = baseUri.resolve("/payments");
+        this.tracker = tracker;
+    }
+
+    /**
+     * Dispara {@code rate} req/s durante {@code duration} e espera as respostas HTTP.
+     *
+     * @param track se false (aquecimento), as SAGAs criadas não são acompanhadas
+     */
+    StepRequests run(int rate, Duration duration, boolean track) {
+        Recorder corrected = new Recorder(3);
+        Recorder uncorrected = new Recorder(3);
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<CompletableFuture<Void>> responses = new ArrayList<>();
+
+        long total = rate * duration.toSeconds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long maxLagNanos = 0;
+        Instant startWall = Instant.now();
+        long startNanos = System.nanoTime();
+        long startMicros = TimeUnit.SECONDS.toMicros(startWall.getEpochSecond()) + startWall.getNano() / 1000;
+
+        for (long i = 0; i < total; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            long wait;
+            while ((wait = intendedNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sentNanos = System.nanoTime();
+            maxLagNanos = Math.max(maxLagNanos, sentNanos - intendedNanos);
+            long intendedMicros = startMicros + TimeUnit.NANOSECONDS.toMicros(intendedNanos - startNanos);
+            long sentMicros = startMicros + TimeUnit.NANOSECONDS.toMicros(sentNanos - startNanos);
+
+            responses.add(httpClient.sendAsync(paymentRequest(i), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    long now = System.nanoTime();
+                    corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - intendedNanos));
+                    uncorrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sentNanos));
+                    String paymentId = error == null && response.statusCode() / 100 == 2
+                        ? paymentId(response.body())
+                        : null;
+                    if (paymentId == null) {
+                        failed.incrementAndGet();
+                        return null;
+                    }
+                    accepted.incrementAndGet();
+                    if (track) {
+                        tracker.track(paymentId, intendedMicros, sentMicros);
+                    }
+                    return null;
+                }));
+        }
+        double sendSeconds = (System.nanoTime() - startNanos + intervalNanos) / 1e9;
+
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        return new StepRequests(rate, total, total / sendSeconds, accepted.get(), failed.get(),
+            TimeUnit.NANOSECONDS.toMicros(maxLagNanos), startMicros,
+            corrected.getIntervalHistogram(), uncorrected.getIntervalHistogram());
+    }
+
+    private HttpRequest paymentRequest(long sequence) {
+        String body = "{\"accountId\":\"acc-load-" + (sequence % ACCOUNTS) + "\",\"amount\":10.00,\"currency\":\"BRL\"}";
+        return HttpRequest.newBuilder(paymentsUri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", UUID.randomUUID().toString())
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private String paymentId(byte[] body) {
+        try {
+            return objectMapper.readTree(body).get("paymentId").asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    record StepRequests(int targetRate, long sent, double achievedRate, long accepted, long failed,
+                        long maxSendLagMicros, long startMicros,
+                        Histogram corrected, Histogram uncorrected) {
+    }
+}
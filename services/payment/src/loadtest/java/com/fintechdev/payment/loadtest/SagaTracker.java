@@ -0,0 +1,124 @@
+package com.fintechdev.payment.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acompanha cada SAGA criada pelo driver até COMPLETED/COMPENSATED lendo {@code saga_states}.
+ * A latência fim a fim vai do início pretendido da requisição (corrigida para coordinated omission)
+ * ou do envio real até o {@code updated_at} da transição terminal.
+ */
+final class SagaTracker implements AutoCloseable {
+
+    private static final String TERMINAL_QUERY =
+        "SELECT payment_id, status, updated_at FROM saga_states " +
+        "WHERE payment_id = ANY (?) AND status IN ('COMPLETED', 'COMPENSATED')";
+    private static final int POLL_BATCH_SIZE = 1000;
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<String, Started> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+
+    // Protegidos pelo monitor do tracker: poll() e o fechamento da etapa em drain() são sincronizados
+    private final Histogram corrected = LoadTestReport.newHistogram();
+    private final Histogram uncorrected = LoadTestReport.newHistogram();
+    private long completed;
+    private long compensated;
+    private long lastTerminalMicros;
+
+    SagaTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    void track(String paymentId, long intendedMicros, long sentMicros) {
+        inFlight.put(paymentId, new Started(intendedMicros, sentMicros));
+    }
+
+    void start() {
+        poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Espera as SAGAs da etapa terminarem e devolve o resultado; as que não terminaram no prazo
+     * contam como não finalizadas e deixam de ser acompanhadas.
+     */
+    StepSagas drain(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        synchronized (this) {
+            StepSagas result = new StepSagas(completed, compensated, inFlight.size(), lastTerminalMicros,
+                corrected.copy(), uncorrected.copy());
+            inFlight.clear();
+            corrected.reset();
+            uncorrected.reset();
+            completed = 0;
+            compensated = 0;
+            lastTerminalMicros = 0;
+            return result;
+        }
+    }
+
+    private synchronized void poll() {
+        try {
+            Iterator<String> ids = inFlight.keySet().iterator();
+            while (ids.hasNext()) {
+                List<String> batch = new ArrayList<>(POLL_BATCH_SIZE);
+                while (ids.hasNext() && batch.size() < POLL_BATCH_SIZE) {
+                    batch.add(ids.next());
+                }
+                pollBatch(batch);
+            }
+        } catch (Exception e) {
+            System.err.println("saga_states poll failed: " + e.getMessage());
+        }
+    }
+
+    private void pollBatch(List<String> paymentIds) {
+        jdbcTemplate.query(TERMINAL_QUERY, statement -> {
+            Array ids = statement.getConnection().createArrayOf("varchar", paymentIds.toArray());
+            statement.setArray(1, ids);
+        }, row -> {
+            Started started = inFlight.remove(row.getString("payment_id"));
+            if (started == null) {
+                return;
+            }
+            Timestamp updatedAt = row.getTimestamp("updated_at");
+            long terminalMicros = TimeUnit.MILLISECONDS.toMicros(updatedAt.getTime())
+                + (updatedAt.getNanos() / 1000) % 1000;
+            corrected.recordValue(Math.max(0, terminalMicros - started.intendedMicros()));
+            uncorrected.recordValue(Math.max(0, terminalMicros - started.sentMicros()));
+            lastTerminalMicros = Math.max(lastTerminalMicros, terminalMicros);
+            if ("COMPLETED".equals(row.getString("status"))) {
+                completed++;
+            } else {
+                compensated++;
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    record Started(long intendedMicros, long sentMicros) {
+    }
+
+    record StepSagas(long completed, long compensated, long unfinished, long lastTerminalMicros,
+                     Histogram corrected, Histogram uncorrected) {
+    }
+}
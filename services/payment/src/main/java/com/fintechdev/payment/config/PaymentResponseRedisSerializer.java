@@ -0,0 +1,154 @@
+package com.fintechdev.payment.config;
+
+import com.fintechdev.payment.dto.PaymentResponse;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Codec compacto para {@link PaymentResponse} no Redis (~31 bytes contra ~150 do JSON com tipo).
+ * <p>
+ * Layout v1: {@code [versão][flags][paymentId][status][timestamp]}, onde o paymentId vai como
+ * 16 bytes quando é um UUID canônico e o status como um código de 1 byte quando conhecido.
+ * Valores que não começam com o byte de versão (JSON legado) são lidos pelo serializer JSON,
+ * então chaves gravadas antes da migração continuam válidas até expirarem.
+ */
+public class PaymentResponseRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte VERSION_1 = 0x01;
+
+    private static final int FLAG_UUID_PAYMENT_ID = 1;
+    private static final int FLAG_HAS_TIMESTAMP = 1 << 1;
+    private static final int FLAG_HAS_PAYMENT_ID = 1 << 2;
+    private static final int FLAG_HAS_STATUS = 1 << 3;
+
+    private static final byte CUSTOM_STATUS = (byte) 0xFF;
+    // Ordem fixa: o índice é o código gravado; só acrescentar no final
+    private static final List<String> KNOWN_STATUSES = List.of(
+        "PROCESSING", "IN_PROGRESS", "PENDING", "COMPLETED", "FAILED", "COMPENSATING", "COMPENSATED");
+
+    private final RedisSerializer<Object> legacySerializer;
+    private final boolean writeBinary;
+
+    public PaymentResponseRedisSerializer(RedisSerializer<Object> legacySerializer, boolean writeBinary) {
+        this.legacySerializer = legacySerializer;
+        this.writeBinary = writeBinary;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!writeBinary || !(value instanceof PaymentResponse response)) {
+            return legacySerializer.serialize(value);
+        }
+
+        String paymentId = response.getPaymentId();
+        UUID uuid = parseUuid(paymentId);
+        byte[] paymentIdBytes = paymentId != null && uuid == null ? paymentId.getBytes(StandardCharsets.UTF_8) : null;
+        String status = response.getStatus();
+        int statusCode = status == null ? -1 : KNOWN_STATUSES.indexOf(status);
+        byte[] statusBytes = status != null && statusCode < 0 ? status.getBytes(StandardCharsets.UTF_8) : null;
+        Instant timestamp = response.getTimestamp();
+        if (tooLong(paymentIdBytes) || tooLong(statusBytes)) {
+            return legacySerializer.serialize(value);
+        }
+
+        int flags = (uuid != null ? FLAG_UUID_PAYMENT_ID : 0)
+            | (timestamp != null ? FLAG_HAS_TIMESTAMP : 0)
+            | (paymentId != null ? FLAG_HAS_PAYMENT_ID : 0)
+            | (status != null ? FLAG_HAS_STATUS : 0);
+
+        int size = 2
+            + (uuid != null ? 16 : 0)
+            + (paymentIdBytes != null ? 2 + paymentIdBytes.length : 0)
+            + (status != null ? 1 : 0)
+            + (statusBytes != null ? 2 + statusBytes.length : 0)
+            + (timestamp != null ? 12 : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION_1);
+        buffer.put((byte) flags);
+        if (uuid != null) {
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        } else if (paymentIdBytes != null) {
+            putString(buffer, paymentIdBytes);
+        }
+        if (status != null) {
+            buffer.put(statusCode >= 0 ? (byte) statusCode : CUSTOM_STATUS);
+            if (statusBytes != null) {
+                putString(buffer, statusBytes);
+            }
+        }
+        if (timestamp != null) {
+            buffer.putLong(timestamp.getEpochSecond());
+            buffer.putInt(timestamp.getNano());
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != VERSION_1) {
+            return legacySerializer.deserialize(bytes);
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            int flags = buffer.get();
+
+            PaymentResponse response = new PaymentResponse();
+            if ((flags & FLAG_UUID_PAYMENT_ID) != 0) {
+                response.setPaymentId(new UUID(buffer.getLong(), buffer.getLong()).toString());
+            } else if ((flags & FLAG_HAS_PAYMENT_ID) != 0) {
+                response.setPaymentId(getString(buffer));
+            }
+            if ((flags & FLAG_HAS_STATUS) != 0) {
+                byte code = buffer.get();
+                response.setStatus(code == CUSTOM_STATUS ? getString(buffer) : KNOWN_STATUSES.get(code));
+            }
+            if ((flags & FLAG_HAS_TIMESTAMP) != 0) {
+                response.setTimestamp(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()));
+            }
+            return response;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new SerializationException("Corrupted PaymentResponse payload", e);
+        }
+    }
+
+    private static boolean tooLong(byte[] bytes) {
+        return bytes != null && bytes.length > 0xFFFF;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            // Só usa a forma binária se a volta for idêntica (ex.: minúsculas)
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.fintechdev.payment.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfig {
     
+    @Value("${saga.pending-completion.park-delay-ms:500}")
+    private long parkDelayMs;
+    
     @Bean
     public TopicExchange ledgerExchange() {
         return new TopicExchange("ledger", true, false);
@@ -32,6 +37,28 @@ public class RabbitMQConfig {
         return new TopicExchange("saga", true, false);
     }
     
+    // Exchange consolidado: um único publish de PaymentInitiated alcança todos os consumidores
+    @Bean
+    public TopicExchange paymentEventsExchange() {
+        return new TopicExchange("payment.events", true, false);
+    }
+    
+    // Migração: bindings exchange-to-exchange mantêm as filas ligadas aos exchanges legados
+    // (ex.: ledger.entry.append em ledger/entry.append) recebendo o publish único.
+    // O publisher envia as routing keys legadas no header CC, então cada exchange de destino
+    // roteia com a mesma chave que já usava.
+    @Bean
+    @ConditionalOnProperty(name = "payment.events.legacy-bindings", havingValue = "true", matchIfMissing = true)
+    public Declarables paymentEventsLegacyBindings() {
+        return new Declarables(
+            BindingBuilder.bind(sagaExchange()).to(paymentEventsExchange()).with("payment.initiated"),
+            BindingBuilder.bind(ledgerExchange()).to(paymentEventsExchange()).with("entry.append"),
+            BindingBuilder.bind(balanceExchange()).to(paymentEventsExchange()).with("update"),
+            BindingBuilder.bind(notificationExchange()).to(paymentEventsExchange()).with("payment.created"),
+            BindingBuilder.bind(paymentsExchange()).to(paymentEventsExchange()).with("payment.initiated")
+        );
+    }
+    
     // Queues for SAGA orchestration
     @Bean
     public Queue sagaLedgerCompletedQueue() {
@@ -93,5 +120,24 @@ public class RabbitMQConfig {
             .to(sagaExchange())
             .with("compensation.completed");
     }
+    
+    // Parking: conclusões que chegam antes da SAGA existir (commit ainda não visível).
+    // Expiram após o delay e voltam para o exchange de SAGA com a routing key original.
+    @Bean
+    public Queue sagaLedgerCompletedParkingQueue() {
+        return QueueBuilder.durable("saga.ledger.completed.parking")
+            .ttl((int) parkDelayMs)
+            .deadLetterExchange("saga")
+            .deadLetterRoutingKey("ledger.completed")
+            .build();
+    }
+    
+    @Bean
+    public Queue sagaBalanceCompletedParkingQueue() {
+        return QueueBuilder.durable("saga.balance.completed.parking")
+            .ttl((int) parkDelayMs)
+            .deadLetterExchange("saga")
+            .deadLetterRoutingKey("balance.completed")
+            .build();
+    }
 }
-
@@ -1,12 +1,16 @@
 package com.fintechdev.payment.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintechdev.payment.service.PaymentStatusNotifier;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -14,7 +18,9 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 public class RedisConfig {
     
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(
+            RedisConnectionFactory connectionFactory,
+            @Value("${idempotency.codec:binary}") String codec) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
@@ -27,8 +33,20 @@ public class RedisConfig {
             com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping.NON_FINAL
         );
         
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer(objectMapper));
+        // binary: PaymentResponse em layout fixo versionado; json: formato anterior.
+        // A leitura entende os dois, o que permite migrar sem invalidar as chaves existentes.
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        template.setValueSerializer(new PaymentResponseRedisSerializer(jsonSerializer, "binary".equals(codec)));
         return template;
     }
+    
+    @Bean
+    public RedisMessageListenerContainer paymentStatusListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            PaymentStatusNotifier statusNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(statusNotifier, new ChannelTopic(PaymentStatusNotifier.CHANNEL));
+        return container;
+    }
 }
-
@@ -1,5 +1,8 @@
 package com.fintechdev.payment.config;
 
+import com.fintechdev.payment.messaging.OutboxRelay;
+import com.fintechdev.payment.service.SagaArchiver;
+import com.fintechdev.payment.service.SagaCompletionWriteBehind;
 import com.fintechdev.payment.service.SagaTimeoutChecker;
 import io.micrometer.observation.ObservationPredicate;
 import org.springframework.context.annotation.Bean;
@@ -7,13 +10,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.server.observation.ServerRequestObservationContext;
 import org.springframework.scheduling.support.ScheduledTaskObservationContext;
 
+import java.util.Set;
+
 /**
- * Reduz ruído no Zipkin: scrapes do Prometheus e o scheduler da SAGA geram muitos traces
+ * Reduz ruído no Zipkin: scrapes do Prometheus e os schedulers (SAGA, outbox) geram muitos traces
  * e escondem {@code POST /payments} na UI com limite baixo.
  */
 @Configuration
 public class TracingNoiseReductionConfig {
 
+    private static final Set<Class<?>> SILENT_SCHEDULED_TASKS = Set.of(
+        SagaTimeoutChecker.class,
+        SagaArchiver.class,
+        SagaCompletionWriteBehind.class,
+        OutboxRelay.class
+    );
+
     @Bean
     ObservationPredicate reduceTracingNoisePredicate() {
         return (name, context) -> {
@@ -27,7 +39,7 @@ public class TracingNoiseReductionConfig {
                 }
             }
             if (context instanceof ScheduledTaskObservationContext sched) {
-                if (sched.getTargetClass() == SagaTimeoutChecker.class) {
+                if (SILENT_SCHEDULED_TASKS.contains(sched.getTargetClass())) {
                     return false;
                 }
             }
@@ -1,21 +1,54 @@
 package com.fintechdev.payment.controller;
 
+import com.fintechdev.payment.dto.BatchPaymentRequest;
+import com.fintechdev.payment.dto.BatchPaymentResponse;
 import com.fintechdev.payment.dto.PaymentRequest;
 import com.fintechdev.payment.dto.PaymentResponse;
+import com.fintechdev.payment.service.IdempotencyConflictException;
 import com.fintechdev.payment.service.PaymentService;
+import com.fintechdev.payment.service.PaymentStatusCache;
+import com.fintechdev.payment.service.PaymentStatusNotifier;
+import com.fintechdev.payment.service.PaymentStreamProcessor;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/payments")
 public class PaymentController {
     
+    private static final int MAX_STATUS_IDS = 500;
+    
     private final PaymentService paymentService;
+    private final PaymentStreamProcessor streamProcessor;
+    private final PaymentStatusCache statusCache;
+    private final PaymentStatusNotifier statusNotifier;
+    private final long maxWaitSeconds;
     
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService,
+                             PaymentStreamProcessor streamProcessor,
+                             PaymentStatusCache statusCache,
+                             PaymentStatusNotifier statusNotifier,
+                             @Value("${payment.status-events.max-wait-seconds:60}") long maxWaitSeconds) {
         this.paymentService = paymentService;
+        this.streamProcessor = streamProcessor;
+        this.statusCache = statusCache;
+        this.statusNotifier = statusNotifier;
+        this.maxWaitSeconds = maxWaitSeconds;
     }
     
     @PostMapping
@@ -26,5 +59,77 @@ public class PaymentController {
         PaymentResponse response = paymentService.processPayment(request, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
+    
+    /**
+     * Até {@value BatchPaymentRequest#MAX_ITEMS} pagamentos por chamada, cada um com sua chave de idempotência;
+     * o resultado de cada item vem na mesma posição.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchPaymentResponse> createPayments(@Valid @RequestBody BatchPaymentRequest request) {
+        return ResponseEntity.ok(paymentService.processBatch(request.getPayments()));
+    }
+    
+    /**
+     * Um pagamento por linha (NDJSON), sem limite de tamanho: as linhas são processadas em micro-lotes
+     * e cada resultado é devolvido como uma linha NDJSON assim que o lote termina.
+     */
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPayments(HttpServletRequest request) throws IOException {
+        InputStream input = request.getInputStream();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(output -> streamProcessor.process(input, output));
+    }
+    
+    @GetMapping("/{paymentId}")
+    public ResponseEntity<PaymentResponse> getPayment(@PathVariable String paymentId) {
+        return statusCache.get(paymentId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Long-poll ({@code ?waitFor=terminal&timeout=30}): responde quando a SAGA termina (COMPLETED/COMPENSATED)
+     * ou, ao fim do timeout em segundos, com o status atual.
+     */
+    @GetMapping(value = "/{paymentId}", params = "waitFor")
+    public DeferredResult<ResponseEntity<PaymentResponse>> awaitPayment(
+            @PathVariable String paymentId,
+            @RequestParam String waitFor,
+            @RequestParam(defaultValue = "30") long timeout) {
+        if (!"terminal".equals(waitFor)) {
+            DeferredResult<ResponseEntity<PaymentResponse>> badRequest = new DeferredResult<>();
+            badRequest.setResult(ResponseEntity.badRequest().build());
+            return badRequest;
+        }
+        long seconds = Math.max(1, Math.min(timeout, maxWaitSeconds));
+        return statusNotifier.awaitTerminal(paymentId, Duration.ofSeconds(seconds));
+    }
+    
+    /**
+     * Stream SSE com o status atual e cada transição da SAGA; encerra no status terminal.
+     */
+    @GetMapping(value = "/{paymentId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> paymentEvents(@PathVariable String paymentId) {
+        return statusNotifier.stream(paymentId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Status de vários pagamentos ({@code ?ids=a,b,c}) na ordem pedida; ids desconhecidos são omitidos.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<PaymentResponse>> getPayments(@RequestParam List<String> ids) {
+        if (ids.size() > MAX_STATUS_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, PaymentResponse> statuses = statusCache.getAll(ids);
+        return ResponseEntity.ok(ids.stream().distinct().map(statuses::get).filter(Objects::nonNull).toList());
+    }
+    
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<PaymentResponse> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getInFlight());
+    }
 }
-
@@ -0,0 +1,17 @@
+package com.fintechdev.payment.dto;
+
+/**
+ * Item de {@code POST /payments/batch}: um {@link PaymentRequest} com a própria chave de idempotência.
+ */
+public class BatchPaymentItem extends PaymentRequest {
+    
+    private String idempotencyKey;
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
@@ -0,0 +1,104 @@
+package com.fintechdev.payment.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de um item do lote, na mesma posição da requisição.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentItemResponse {
+    
+    public enum Outcome {
+        CREATED,
+        // Chave já tinha resposta gravada (ou repetida no próprio lote): devolve o pagamento existente
+        DUPLICATE,
+        // Outra requisição com a mesma chave ainda está em andamento
+        CONFLICT,
+        // Linha inválida no POST /payments/stream (JSON malformado ou validação)
+        INVALID,
+        // Micro-lote do POST /payments/stream revertido por erro; a linha pode ser reenviada
+        FAILED
+    }
+    
+    private int index;
+    private String idempotencyKey;
+    private Outcome outcome;
+    private String paymentId;
+    private String status;
+    private String error;
+    
+    // Default constructor for Jackson
+    public BatchPaymentItemResponse() {
+    }
+    
+    public BatchPaymentItemResponse(int index, String idempotencyKey, Outcome outcome, PaymentResponse payment) {
+        this.index = index;
+        this.idempotencyKey = idempotencyKey;
+        this.outcome = outcome;
+        this.paymentId = payment.getPaymentId();
+        this.status = payment.getStatus();
+    }
+    
+    public static BatchPaymentItemResponse invalid(int index, String idempotencyKey, String error) {
+        BatchPaymentItemResponse response = new BatchPaymentItemResponse();
+        response.setIndex(index);
+        response.setIdempotencyKey(idempotencyKey);
+        response.setOutcome(Outcome.INVALID);
+        response.setError(error);
+        return response;
+    }
+    
+    public static BatchPaymentItemResponse failed(int index, String idempotencyKey, String error) {
+        BatchPaymentItemResponse response = invalid(index, idempotencyKey, error);
+        response.setOutcome(Outcome.FAILED);
+        return response;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    public Outcome getOutcome() {
+        return outcome;
+    }
+    
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+    
+    public String getPaymentId() {
+        return paymentId;
+    }
+    
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fintechdev.payment.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BatchPaymentRequest {
+    
+    public static final int MAX_ITEMS = 1000;
+    
+    @NotEmpty(message = "At least one payment is required")
+    @Size(max = MAX_ITEMS, message = "At most " + MAX_ITEMS + " payments per batch")
+    private List<@Valid BatchPaymentItem> payments;
+    
+    public List<BatchPaymentItem> getPayments() {
+        return payments;
+    }
+    
+    public void setPayments(List<BatchPaymentItem> payments) {
+        this.payments = payments;
+    }
+}
@@ -0,0 +1,24 @@
+package com.fintechdev.payment.dto;
+
+import java.util.List;
+
+public class BatchPaymentResponse {
+    
+    private List<BatchPaymentItemResponse> results;
+    
+    // Default constructor for Jackson
+    public BatchPaymentResponse() {
+    }
+    
+    public BatchPaymentResponse(List<BatchPaymentItemResponse> results) {
+        this.results = results;
+    }
+    
+    public List<BatchPaymentItemResponse> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<BatchPaymentItemResponse> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,186 @@
+package com.fintechdev.payment.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publicação com publisher confirms correlacionados e assíncronos.
+ * <p>
+ * Cada mensagem leva um {@link CorrelationData}; o publish não espera o broker, e o ack chega
+ * depois pelo future da correlação. Uma janela ({@link Semaphore}) limita as mensagens aguardando
+ * confirm: com ela cheia, {@link #send} bloqueia o chamador (backpressure) em vez de acumular
+ * memória. A espera é limitada porque toda mensagem na janela termina (ack ou falha) em no máximo
+ * {@code max-attempts} timeouts de confirm.
+ * <p>
+ * O template publica com {@code mandatory} ({@code spring.rabbitmq.template.mandatory}): uma
+ * mensagem sem fila de destino volta por basic.return antes do ack e fica registrada na própria
+ * correlação; ela é tratada como não confirmada. Nack, retorno, timeout do confirm ou falha do
+ * canal republicam a mensagem em outra thread (o callback do confirm roda na thread da conexão e
+ * não deve publicar) até {@code amqp.publisher.max-attempts}; esgotadas as tentativas, o future
+ * falha e o erro é logado. Cada tentativa publica uma cópia da mensagem, porque o template grava a
+ * correlação nos headers e a mesma {@link Message} pode estar em vários publishes ao mesmo tempo.
+ * <p>
+ * Cópia idêntica em payment-service e ledger-service (os serviços não compartilham módulo): as
+ * duas classes só diferem no pacote e devem ser alteradas juntas.
+ */
+@Component
+public class ConfirmedPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfirmedPublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Semaphore window;
+    private final int maxAttempts;
+    private final long confirmTimeoutMs;
+    private final long retryBackoffMs;
+    private final ScheduledExecutorService resendExecutor;
+    private final Timer confirmTimer;
+    private final Counter unconfirmedCounter;
+    private final Counter resentCounter;
+    private final Counter failedCounter;
+    private final Counter returnedCounter;
+
+    public ConfirmedPublisher(RabbitTemplate rabbitTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${amqp.publisher.max-in-flight:1000}") int maxInFlight,
+                              @Value("${amqp.publisher.max-attempts:3}") int maxAttempts,
+                              @Value("${amqp.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                              @Value("${amqp.publisher.retry-backoff-ms:100}") long retryBackoffMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.window = new Semaphore(maxInFlight);
+        this.maxAttempts = maxAttempts;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.resendExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "amqp-publisher-resend");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.confirmTimer = Timer.builder("amqp.publisher.confirm.latency")
+            .description("Time between publish and broker ack")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.unconfirmedCounter = Counter.builder("amqp.publisher.unconfirmed")
+            .description("Publish attempts nacked, timed out or rejected by the channel")
+            .register(meterRegistry);
+        this.resentCounter = Counter.builder("amqp.publisher.resent")
+            .description("Messages republished after an unconfirmed attempt")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("amqp.publisher.failed")
+            .description("Messages given up after max attempts")
+            .register(meterRegistry);
+        this.returnedCounter = Counter.builder("amqp.publisher.returned")
+            .description("Publish attempts returned by the broker as unroutable")
+            .register(meterRegistry);
+        // O resultado do retorno é tratado pela correlação; o callback só evita o aviso do template
+        rabbitTemplate.setReturnsCallback(returned -> logger.debug("Message returned by broker: {}/{} {} {}",
+            returned.getExchange(), returned.getRoutingKey(), returned.getReplyCode(), returned.getReplyText()));
+        Gauge.builder("amqp.publisher.in-flight", window, semaphore -> maxInFlight - semaphore.availablePermits())
+            .description("Messages published and awaiting broker confirm")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Publica a mensagem e devolve um future concluído no ack do broker (após eventuais reenvios)
+     * ou com erro quando as tentativas se esgotam. Só bloqueia se a janela de in-flight estiver cheia,
+     * até alguma mensagem em voo terminar; um lote maior que a janela apenas espera, sem falhar.
+     */
+    public CompletableFuture<Void> send(String exchange, String routingKey, Message message) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted waiting for the publisher confirm window", e);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        result.whenComplete((ignored, error) -> window.release());
+        attempt(new Publish(exchange, routingKey, message, result), 1);
+        return result;
+    }
+
+    private void attempt(Publish publish, int attempt) {
+        CorrelationData correlation = new CorrelationData();
+        long startNanos = System.nanoTime();
+        try {
+            Message copy = MessageBuilder.fromClonedMessage(publish.message()).build();
+            rabbitTemplate.send(publish.exchange(), publish.routingKey(), copy, correlation);
+        } catch (AmqpException e) {
+            unconfirmedCounter.increment();
+            retryOrFail(publish, attempt, e.getMessage());
+            return;
+        }
+        correlation.getFuture()
+            .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((confirm, error) -> {
+                ReturnedMessage returned = correlation.getReturned();
+                if (error == null && confirm.isAck() && returned == null) {
+                    confirmTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    publish.result().complete(null);
+                    return;
+                }
+                unconfirmedCounter.increment();
+                String reason;
+                if (error != null) {
+                    reason = "confirm timeout";
+                } else if (!confirm.isAck()) {
+                    reason = "nack: " + confirm.getReason();
+                } else {
+                    returnedCounter.increment();
+                    reason = "returned: " + returned.getReplyCode() + " " + returned.getReplyText();
+                }
+                retryOrFail(publish, attempt, reason);
+            });
+    }
+
+    private void retryOrFail(Publish publish, int attempt, String reason) {
+        if (attempt >= maxAttempts) {
+            fail(publish, attempt, reason);
+            return;
+        }
+        logger.warn("Publish to {}/{} not confirmed ({}), resending: attempt={}",
+            publish.exchange(), publish.routingKey(), reason, attempt + 1);
+        resentCounter.increment();
+        try {
+            resendExecutor.schedule(() -> attempt(publish, attempt + 1), retryBackoffMs * attempt, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            fail(publish, attempt, "publisher shutting down");
+        }
+    }
+
+    private void fail(Publish publish, int attempts, String reason) {
+        failedCounter.increment();
+        logger.error("Publish to {}/{} not confirmed after {} attempts: {}",
+            publish.exchange(), publish.routingKey(), attempts, reason);
+        publish.result().completeExceptionally(
+            new AmqpException("Publish to " + publish.exchange() + "/" + publish.routingKey() + " not confirmed: " + reason));
+    }
+
+    @PreDestroy
+    void stop() {
+        // Reenvios já agendados ainda rodam; novos são recusados
+        resendExecutor.shutdown();
+    }
+
+    private record Publish(String exchange, String routingKey, Message message, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.fintechdev.payment.messaging;
+
+import com.fintechdev.payment.model.OutboxEvent;
+import com.fintechdev.payment.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drena o outbox em lotes: publica o lote inteiro em pipeline pelo {@link ConfirmedPublisher}
+ * (confirms correlacionados, sem round-trip por mensagem), aguarda todos os confirms e só então
+ * remove as linhas. Se alguma mensagem não for confirmada mesmo após os reenvios, a transação é
+ * revertida e o lote é republicado na próxima execução (entrega at-least-once).
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private final OutboxEventRepository outboxRepository;
+    private final PaymentEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer lagTimer;
+    private final Counter publishedCounter;
+
+    public OutboxRelay(OutboxEventRepository outboxRepository,
+                       PaymentEventPublisher eventPublisher,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.batchSizeSummary = DistributionSummary.builder("outbox.relay.batch.size")
+            .description("Events published per outbox relay batch")
+            .register(meterRegistry);
+        this.lagTimer = Timer.builder("outbox.relay.lag")
+            .description("Time between outbox insert and broker confirm")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.publishedCounter = Counter.builder("outbox.relay.published")
+            .description("Outbox events published and confirmed")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:100}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            logger.error("Outbox relay failed, batch will be retried", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxRepository.claimBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        CompletableFuture<?>[] confirms = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            confirms[i] = eventPublisher.dispatch(batch.get(i));
+        }
+        // Cada publish tem timeout próprio no ConfirmedPublisher, então o join sempre termina
+        CompletableFuture.allOf(confirms).join();
+
+        outboxRepository.deleteAllInBatch(batch);
+
+        Instant now = Instant.now();
+        for (OutboxEvent event : batch) {
+            lagTimer.record(Duration.between(event.getCreatedAt(), now));
+        }
+        batchSizeSummary.record(batch.size());
+        publishedCounter.increment(batch.size());
+        logger.debug("Outbox batch relayed: size={}", batch.size());
+
+        return batch.size();
+    }
+}
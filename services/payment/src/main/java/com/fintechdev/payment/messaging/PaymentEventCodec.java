@@ -0,0 +1,253 @@
+package com.fintechdev.payment.messaging;
+
+import com.fintechdev.payment.dto.PaymentRequest;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Codifica os eventos de schema fixo publicados pelo payment-service direto em UTF-8, num buffer
+ * reaproveitado por thread: sem {@code Map} intermediário, sem {@code String} do JSON e sem a
+ * segunda codificação do {@code convertAndSend}. A única alocação por evento é o corpo da mensagem,
+ * copiado no tamanho exato (o corpo não pode ser compartilhado: o Rabbit pode reenviá-lo num nack).
+ * <p>
+ * O formato é o mesmo que o {@code ObjectMapper} produzia; {@code amount} continua como string no
+ * PaymentInitiated e no CompensationRequested.
+ */
+public final class PaymentEventCodec {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // Eventos com campos anormalmente grandes não deixam um buffer gigante preso à thread
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+    private static final ThreadLocal<EventWriter> WRITERS = ThreadLocal.withInitial(EventWriter::new);
+
+    private static final byte[] EVENT = key("event");
+    private static final byte[] PAYMENT_ID = key("paymentId");
+    private static final byte[] TRANSACTION_ID = key("transactionId");
+    private static final byte[] ACCOUNT_ID = key("accountId");
+    private static final byte[] AMOUNT = key("amount");
+    private static final byte[] CURRENCY = key("currency");
+    private static final byte[] SERVICE = key("service");
+    private static final byte[] TYPE = key("type");
+    private static final byte[] OPERATION = key("operation");
+    private static final byte[] TS = key("ts");
+
+    private PaymentEventCodec() {
+    }
+
+    public static byte[] paymentInitiated(String paymentId, PaymentRequest request, long timestamp) {
+        return WRITERS.get().begin()
+            .string(EVENT, PaymentEventPublisher.PAYMENT_INITIATED)
+            .string(PAYMENT_ID, paymentId)
+            .string(ACCOUNT_ID, request.getAccountId())
+            .decimalString(AMOUNT, request.getAmount())
+            .string(CURRENCY, request.getCurrency())
+            .number(TS, timestamp)
+            .end();
+    }
+
+    public static byte[] paymentCreated(String paymentId, PaymentRequest request, long timestamp) {
+        return WRITERS.get().begin()
+            .string(EVENT, "PaymentCreated")
+            .string(PAYMENT_ID, paymentId)
+            .string(ACCOUNT_ID, request.getAccountId())
+            .decimalString(AMOUNT, request.getAmount())
+            .string(CURRENCY, request.getCurrency())
+            .number(TS, timestamp)
+            .end();
+    }
+
+    public static byte[] compensationRequested(String paymentId, String service, PaymentRequest request, long timestamp) {
+        return WRITERS.get().begin()
+            .string(EVENT, "CompensationRequested")
+            .string(PAYMENT_ID, paymentId)
+            .string(SERVICE, service)
+            .string(ACCOUNT_ID, request.getAccountId())
+            .decimalString(AMOUNT, request.getAmount())
+            .string(CURRENCY, request.getCurrency())
+            .number(TS, timestamp)
+            .end();
+    }
+
+    public static byte[] ledgerEntry(String transactionId, String paymentId, PaymentRequest request) {
+        return WRITERS.get().begin()
+            .string(TRANSACTION_ID, transactionId)
+            .string(PAYMENT_ID, paymentId)
+            .string(ACCOUNT_ID, request.getAccountId())
+            .decimal(AMOUNT, request.getAmount())
+            .string(CURRENCY, request.getCurrency())
+            .string(TYPE, "DEBIT")
+            .end();
+    }
+
+    public static byte[] balanceUpdate(String accountId, BigDecimal amount) {
+        return WRITERS.get().begin()
+            .string(ACCOUNT_ID, accountId)
+            .decimal(AMOUNT, amount)
+            .string(OPERATION, "DEBIT")
+            .end();
+    }
+
+    /**
+     * Mensagem AMQP pronta para {@code send}, com as mesmas propriedades que o conversor padrão
+     * gerava para o JSON em String (consumidores leem o corpo como texto).
+     */
+    public static Message message(byte[] body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+        properties.setContentEncoding("UTF-8");
+        properties.setContentLength(body.length);
+        return new Message(body, properties);
+    }
+
+    private static byte[] key(String name) {
+        byte[] key = new byte[name.length() + 3];
+        key[0] = '"';
+        for (int i = 0; i < name.length(); i++) {
+            key[i + 1] = (byte) name.charAt(i);
+        }
+        key[key.length - 2] = '"';
+        key[key.length - 1] = ':';
+        return key;
+    }
+
+    private static final class EventWriter {
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+        private byte[] buffer = new byte[INITIAL_CAPACITY];
+        private int length;
+
+        EventWriter begin() {
+            if (buffer.length > MAX_RETAINED_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+            length = 0;
+            put('{');
+            return this;
+        }
+
+        byte[] end() {
+            buffer[length - 1] = '}';  // substitui a vírgula do último campo
+            return Arrays.copyOf(buffer, length);
+        }
+
+        EventWriter string(byte[] key, String value) {
+            put(key);
+            if (value == null) {
+                put(NULL);
+            } else {
+                put('"');
+                escaped(value);
+                put('"');
+            }
+            put(',');
+            return this;
+        }
+
+        /** BigDecimal em string JSON ({@code "10.00"}), como o {@code toString()} usado até aqui. */
+        EventWriter decimalString(byte[] key, BigDecimal value) {
+            return string(key, value == null ? null : value.toString());
+        }
+
+        /** BigDecimal como número JSON. */
+        EventWriter decimal(byte[] key, BigDecimal value) {
+            put(key);
+            if (value == null) {
+                put(NULL);
+            } else {
+                // toString é cacheado pelo próprio BigDecimal; só dígitos, sinal, ponto e expoente
+                String digits = value.toString();
+                ensure(digits.length());
+                for (int i = 0; i < digits.length(); i++) {
+                    buffer[length++] = (byte) digits.charAt(i);
+                }
+            }
+            put(',');
+            return this;
+        }
+
+        EventWriter number(byte[] key, long value) {
+            put(key);
+            ensure(20);
+            // Dígitos calculados em negativo para cobrir Long.MIN_VALUE
+            if (value < 0) {
+                buffer[length++] = '-';
+            } else {
+                value = -value;
+            }
+            int start = length;
+            do {
+                buffer[length++] = (byte) ('0' - (value % 10));
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = digit;
+            }
+            put(',');
+            return this;
+        }
+
+        private void escaped(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                ensure(6);
+                if (c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        buffer[length++] = '\\';
+                        buffer[length++] = (byte) c;
+                    } else if (c < 0x20) {
+                        buffer[length++] = '\\';
+                        buffer[length++] = 'u';
+                        buffer[length++] = '0';
+                        buffer[length++] = '0';
+                        buffer[length++] = HEX[c >> 4];
+                        buffer[length++] = HEX[c & 0xF];
+                    } else {
+                        buffer[length++] = (byte) c;
+                    }
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xC0 | (c >> 6));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Surrogate isolado: mesmo substituto do String.getBytes(UTF_8)
+                    buffer[length++] = '?';
+                } else {
+                    buffer[length++] = (byte) (0xE0 | (c >> 12));
+                    buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void put(int b) {
+            ensure(1);
+            buffer[length++] = (byte) b;
+        }
+
+        private void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
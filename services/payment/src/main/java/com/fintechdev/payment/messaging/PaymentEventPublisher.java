@@ -1,19 +1,34 @@
 package com.fintechdev.payment.messaging;
 
 import com.fintechdev.payment.dto.PaymentRequest;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.fintechdev.payment.model.OutboxEvent;
+import com.fintechdev.payment.repository.OutboxEventRepository;
+import org.springframework.amqp.core.Message;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class PaymentEventPublisher {
     
-    private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
+    public static final String PARK_COUNT_HEADER = "x-park-count";
+    public static final String PAYMENT_INITIATED = "PaymentInitiated";
+    
+    // Routing keys legadas dos consumidores de PaymentInitiated (ledger, balance, notifications)
+    private static final List<String> PAYMENT_INITIATED_CC = List.of("entry.append", "update", "payment.created");
+    
+    private final ConfirmedPublisher confirmedPublisher;
+    private final OutboxEventRepository outboxRepository;
+    private final JdbcTemplate jdbcTemplate;
     
     @Value("${ledger.exchange:ledger}")
     private String ledgerExchange;
@@ -30,54 +45,97 @@ public class PaymentEventPublisher {
     @Value("${saga.exchange:saga}")
     private String sagaExchange;
     
-    public PaymentEventPublisher(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper) {
-        this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
+    @Value("${payment.events.exchange:payment.events}")
+    private String paymentEventsExchange;
+    
+    // single: um publish no exchange consolidado; legacy: um publish por exchange de destino
+    @Value("${payment.events.publish-mode:single}")
+    private String publishMode;
+    
+    public PaymentEventPublisher(ConfirmedPublisher confirmedPublisher,
+                                 OutboxEventRepository outboxRepository,
+                                 JdbcTemplate jdbcTemplate) {
+        this.confirmedPublisher = confirmedPublisher;
+        this.outboxRepository = outboxRepository;
+        this.jdbcTemplate = jdbcTemplate;
     }
     
+    /**
+     * Grava o evento no outbox na mesma transação da {@code SagaState}; a publicação no
+     * RabbitMQ fica a cargo do {@link OutboxRelay}. Se a transação for revertida, o evento some junto.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publishPaymentInitiated(String paymentId, PaymentRequest request) {
         try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("event", "PaymentInitiated");
-            event.put("paymentId", paymentId);
-            event.put("accountId", request.getAccountId());
-            event.put("amount", request.getAmount().toString());
-            event.put("currency", request.getCurrency());
-            event.put("ts", System.currentTimeMillis());
-            
-            String message = objectMapper.writeValueAsString(event);
-            
-            // Publica evento de início da SAGA
-            rabbitTemplate.convertAndSend(sagaExchange, "payment.initiated", message);
-            
-            // Publica para serviços que precisam processar
-            rabbitTemplate.convertAndSend(ledgerExchange, "entry.append", message);
-            rabbitTemplate.convertAndSend(balanceExchange, "update", message);
-            rabbitTemplate.convertAndSend(notificationExchange, "payment.created", message);
-            rabbitTemplate.convertAndSend(paymentsExchange, "", message);
+            outboxRepository.save(new OutboxEvent(PAYMENT_INITIATED, paymentId, paymentInitiatedPayload(paymentId, request)));
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to publish payment initiated event", e);
         }
     }
     
-    public void publishPaymentCreated(String paymentId, PaymentRequest request) {
+    /**
+     * Versão em lote de {@link #publishPaymentInitiated}: um único batch JDBC no outbox
+     * (o id IDENTITY impede o batching de inserts pelo Hibernate).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishPaymentsInitiated(Map<String, ? extends PaymentRequest> requestsByPaymentId) {
         try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("event", "PaymentCreated");
-            event.put("paymentId", paymentId);
-            event.put("accountId", request.getAccountId());
-            event.put("amount", request.getAmount().toString());
-            event.put("currency", request.getCurrency());
-            event.put("ts", System.currentTimeMillis());
+            Timestamp createdAt = Timestamp.from(Instant.now());
+            List<Object[]> rows = new ArrayList<>(requestsByPaymentId.size());
+            for (Map.Entry<String, ? extends PaymentRequest> entry : requestsByPaymentId.entrySet()) {
+                rows.add(new Object[] {
+                    PAYMENT_INITIATED, entry.getKey(), paymentInitiatedPayload(entry.getKey(), entry.getValue()), createdAt
+                });
+            }
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (event_type, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)", rows);
             
-            String message = objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to publish payment initiated events", e);
+        }
+    }
+    
+    byte[] paymentInitiatedPayload(String paymentId, PaymentRequest request) {
+        return PaymentEventCodec.paymentInitiated(paymentId, request, System.currentTimeMillis());
+    }
+    
+    /**
+     * Publica um evento do outbox em todos os exchanges de destino; o future conclui quando o
+     * broker confirmar todos os publishes.
+     */
+    public CompletableFuture<Void> dispatch(OutboxEvent outboxEvent) {
+        if (!PAYMENT_INITIATED.equals(outboxEvent.getEventType())) {
+            throw new IllegalArgumentException("Unsupported outbox event type: " + outboxEvent.getEventType());
+        }
+        
+        Message message = PaymentEventCodec.message(outboxEvent.getPayload());
+        
+        if ("single".equals(publishMode)) {
+            // Um único publish; o broker faz o fan-out via bindings exchange-to-exchange
+            message.getMessageProperties().setHeader("CC", PAYMENT_INITIATED_CC);
+            return confirmedPublisher.send(paymentEventsExchange, "payment.initiated", message);
+        }
+        
+        // Início da SAGA + serviços que precisam processar
+        return CompletableFuture.allOf(
+            confirmedPublisher.send(sagaExchange, "payment.initiated", message),
+            confirmedPublisher.send(ledgerExchange, "entry.append", message),
+            confirmedPublisher.send(balanceExchange, "update", message),
+            confirmedPublisher.send(notificationExchange, "payment.created", message),
+            confirmedPublisher.send(paymentsExchange, "", message));
+    }
+    
+    public void publishPaymentCreated(String paymentId, PaymentRequest request) {
+        try {
+            Message message = PaymentEventCodec.message(
+                PaymentEventCodec.paymentCreated(paymentId, request, System.currentTimeMillis()));
             
             // Publish to notifications exchange (for notification service)
-            rabbitTemplate.convertAndSend(notificationExchange, "payment.created", message);
+            confirmedPublisher.send(notificationExchange, "payment.created", message);
             
             // Publish to payments exchange (for antifraud and other consumers)
-            rabbitTemplate.convertAndSend(paymentsExchange, "", message);
+            confirmedPublisher.send(paymentsExchange, "", message);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to publish payment created event", e);
@@ -86,30 +144,32 @@ public class PaymentEventPublisher {
     
     public void publishCompensationRequest(String paymentId, String service, PaymentRequest request) {
         try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("event", "CompensationRequested");
-            event.put("paymentId", paymentId);
-            event.put("service", service);
-            event.put("accountId", request.getAccountId());
-            event.put("amount", request.getAmount().toString());
-            event.put("currency", request.getCurrency());
-            event.put("ts", System.currentTimeMillis());
-            
-            String message = objectMapper.writeValueAsString(event);
+            Message message = PaymentEventCodec.message(
+                PaymentEventCodec.compensationRequested(paymentId, service, request, System.currentTimeMillis()));
             
             // Publica no exchange específico do serviço
             if ("ledger".equals(service)) {
-                rabbitTemplate.convertAndSend(ledgerExchange, "compensation", message);
+                confirmedPublisher.send(ledgerExchange, "compensation", message);
             } else if ("balance".equals(service)) {
-                rabbitTemplate.convertAndSend(balanceExchange, "compensation", message);
+                confirmedPublisher.send(balanceExchange, "compensation", message);
             }
             
             // Também publica no exchange de SAGA
-            rabbitTemplate.convertAndSend(sagaExchange, "compensation.requested", message);
+            confirmedPublisher.send(sagaExchange, "compensation.requested", message);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to publish compensation request", e);
         }
     }
+    
+    /**
+     * Estaciona um evento de SAGA na fila de parking correspondente; após o TTL da fila
+     * ele é reentregue no exchange de SAGA com a routing key original. O future conclui
+     * no confirm do broker.
+     */
+    public CompletableFuture<Void> parkSagaEvent(String routingKey, byte[] body, int parkCount) {
+        Message message = PaymentEventCodec.message(body);
+        message.getMessageProperties().setHeader(PARK_COUNT_HEADER, parkCount);
+        return confirmedPublisher.send("", "saga." + routingKey + ".parking", message);
+    }
 }
-
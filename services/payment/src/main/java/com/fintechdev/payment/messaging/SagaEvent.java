@@ -0,0 +1,45 @@
+package com.fintechdev.payment.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Evento de resultado de uma etapa da SAGA (LedgerCompleted, BalanceFailed, CompensationCompleted...).
+ * Lido em streaming direto do corpo da mensagem, sem decodificar para String nem montar a árvore
+ * {@code JsonNode}; campos que o orquestrador não usa são pulados.
+ */
+public record SagaEvent(String paymentId, String reason) {
+
+    private static final String UNKNOWN_REASON = "Unknown error";
+
+    public static SagaEvent read(JsonFactory jsonFactory, byte[] body) throws IOException {
+        String paymentId = null;
+        String reason = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Saga event must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "paymentId" -> paymentId = parser.getValueAsString();
+                    case "reason" -> reason = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (paymentId == null) {
+            throw new IllegalArgumentException("Saga event without paymentId");
+        }
+        return new SagaEvent(paymentId, reason);
+    }
+
+    public String reasonOrDefault() {
+        return reason != null ? reason : UNKNOWN_REASON;
+    }
+}
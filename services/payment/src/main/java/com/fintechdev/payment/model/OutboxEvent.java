@@ -0,0 +1,82 @@
+package com.fintechdev.payment.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    
+    // Identity garante a ordem de publicação pelo relay
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String eventType;
+    
+    @Column(nullable = false)
+    private String aggregateId;
+    
+    @Column(nullable = false)
+    private byte[] payload;
+    
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+    
+    // Default constructor for JPA
+    public OutboxEvent() {
+    }
+    
+    public OutboxEvent(String eventType, String aggregateId, byte[] payload) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+    
+    public String getAggregateId() {
+        return aggregateId;
+    }
+    
+    public void setAggregateId(String aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+    
+    public byte[] getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
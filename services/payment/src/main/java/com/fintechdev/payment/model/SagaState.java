@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.UUID;
 
+// Índices parciais (SAGAs em PROCESSING por timeout_at, terminais por created_at) e a tabela
+// saga_states_archive são criados pelo SagaArchiver, pois o Hibernate não declara índice parcial
 @Entity
 @Table(name = "saga_states", indexes = {
     @Index(name = "idx_payment_id", columnList = "paymentId"),
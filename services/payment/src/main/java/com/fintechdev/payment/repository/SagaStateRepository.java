@@ -2,10 +2,13 @@ package com.fintechdev.payment.repository;
 
 import com.fintechdev.payment.model.SagaState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +16,79 @@ import java.util.Optional;
 public interface SagaStateRepository extends JpaRepository<SagaState, java.util.UUID> {
     Optional<SagaState> findByPaymentId(String paymentId);
     
-    @Query("SELECT s FROM SagaState s WHERE s.status = :status AND s.timeoutAt IS NOT NULL AND s.timeoutAt < :now")
-    List<SagaState> findTimedOutSagas(SagaState.SagaStatus status, Instant now);
+    boolean existsByPaymentId(String paymentId);
+    
+    List<SagaState> findByPaymentIdIn(Collection<String> paymentIds);
+    
+    // SAGAs terminais já movidas pelo SagaArchiver (mesmas colunas de saga_states)
+    @Query(value = "SELECT id, payment_id, status, account_id, amount, currency, ledger_completed, balance_completed, " +
+                   "notification_sent, failure_reason, created_at, updated_at, timeout_at " +
+                   "FROM saga_states_archive WHERE payment_id IN :paymentIds",
+           nativeQuery = true)
+    List<SagaState> findArchivedByPaymentIdIn(Collection<String> paymentIds);
+    
+    // Transições em uma única instrução: o banco aplica a mudança sobre a linha atual,
+    // então eventos concorrentes da mesma SAGA não sobrescrevem as flags um do outro.
+    
+    // Marca as etapas concluídas e passa para COMPLETED quando ambas estiverem prontas.
+    // Retorna o status resultante e quais flags esta chamada ligou (lidas da linha travada antes
+    // do UPDATE), ou vazio se a SAGA não existe.
+    @Transactional
+    @Query(value = "WITH prev AS (" +
+                   "SELECT id, COALESCE(ledger_completed, false) AS ledger, COALESCE(balance_completed, false) AS balance " +
+                   "FROM saga_states WHERE payment_id = :paymentId FOR UPDATE) " +
+                   "UPDATE saga_states s SET " +
+                   "ledger_completed = prev.ledger OR :ledger, " +
+                   "balance_completed = prev.balance OR :balance, " +
+                   "status = CASE WHEN s.status = 'PROCESSING' " +
+                   "AND (prev.ledger OR :ledger) AND (prev.balance OR :balance) " +
+                   "THEN 'COMPLETED' ELSE s.status END, " +
+                   "updated_at = now() " +
+                   "FROM prev WHERE s.id = prev.id " +
+                   "RETURNING s.status AS status, " +
+                   "(:ledger AND NOT prev.ledger) AS \"ledgerApplied\", " +
+                   "(:balance AND NOT prev.balance) AS \"balanceApplied\"",
+           nativeQuery = true)
+    Optional<StepCompletion> markStepsCompleted(String paymentId, boolean ledger, boolean balance);
+    
+    // Falha e entra em compensação apenas se a SAGA ainda está em andamento;
+    // um segundo evento de falha não dispara outra compensação.
+    @Transactional
+    @Query(value = "UPDATE saga_states SET status = 'COMPENSATING', failure_reason = :reason, updated_at = now() " +
+                   "WHERE payment_id = :paymentId AND status IN ('PENDING', 'PROCESSING') RETURNING *",
+           nativeQuery = true)
+    Optional<SagaState> failAndStartCompensation(String paymentId, String reason);
+    
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE saga_states SET status = 'COMPENSATED', updated_at = now() " +
+                   "WHERE payment_id = :paymentId AND status = 'COMPENSATING'",
+           nativeQuery = true)
+    int markCompensated(String paymentId);
+    
+    // Página de SAGAs PROCESSING vencidas, em ordem de timeout, pelo índice parcial de PROCESSING por timeout_at.
+    // SKIP LOCKED deixa cada réplica reivindicar um lote diferente.
+    @Query(value = "SELECT * FROM saga_states " +
+                   "WHERE status = 'PROCESSING' AND timeout_at < :now " +
+                   "AND NOT (COALESCE(ledger_completed, false) AND COALESCE(balance_completed, false)) " +
+                   "ORDER BY timeout_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<SagaState> claimTimedOutSagas(Instant now, int limit);
+    
+    // Mesma condição para uma única SAGA, usada quando o prazo dispara no SagaDeadlineScheduler
+    @Query(value = "SELECT * FROM saga_states " +
+                   "WHERE payment_id = :paymentId AND status = 'PROCESSING' AND timeout_at <= :now " +
+                   "AND NOT (COALESCE(ledger_completed, false) AND COALESCE(balance_completed, false)) " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<SagaState> claimTimedOutSaga(String paymentId, Instant now);
+    
+    // Resultado de markStepsCompleted
+    interface StepCompletion {
+        String getStatus();
+        
+        boolean getLedgerApplied();
+        
+        boolean getBalanceApplied();
+    }
 }
-
@@ -1,29 +1,27 @@
 package com.fintechdev.payment.service;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.fintechdev.payment.messaging.ConfirmedPublisher;
+import com.fintechdev.payment.messaging.PaymentEventCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class BalanceService {
     
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmedPublisher confirmedPublisher;
     
     @Value("${balance.exchange:balance}")
     private String balanceExchange;
     
-    public BalanceService(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public BalanceService(ConfirmedPublisher confirmedPublisher) {
+        this.confirmedPublisher = confirmedPublisher;
     }
     
     public void updateBalance(String accountId, java.math.BigDecimal amount) {
         // Publish balance update event
-        String message = String.format(
-            "{\"accountId\":\"%s\",\"amount\":%s,\"operation\":\"DEBIT\"}",
-            accountId, amount
-        );
+        byte[] message = PaymentEventCodec.balanceUpdate(accountId, amount);
         
-        rabbitTemplate.convertAndSend(balanceExchange, "update", message);
+        confirmedPublisher.send(balanceExchange, "update", PaymentEventCodec.message(message));
     }
 }
 
@@ -0,0 +1,20 @@
+package com.fintechdev.payment.service;
+
+import com.fintechdev.payment.dto.PaymentResponse;
+
+/**
+ * Outra requisição com a mesma {@code Idempotency-Key} ainda está criando o pagamento.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    
+    private final PaymentResponse inFlight;
+    
+    public IdempotencyConflictException(PaymentResponse inFlight) {
+        super("Payment with the same idempotency key is in progress: " + inFlight.getPaymentId());
+        this.inFlight = inFlight;
+    }
+    
+    public PaymentResponse getInFlight() {
+        return inFlight;
+    }
+}
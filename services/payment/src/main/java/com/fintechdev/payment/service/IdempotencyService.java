@@ -1,30 +1,195 @@
 package com.fintechdev.payment.service;
 
 import com.fintechdev.payment.dto.PaymentResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Idempotência em dois níveis: cache local (L1, Caffeine) na frente do Redis.
+ * Uma resposta gravada para uma chave nunca muda, então o L1 só guarda respostas
+ * encontradas/gravadas e nunca ausências; assim uma chave gravada por outra instância
+ * é sempre vista no Redis. O TTL curto do L1 limita a divergência após expiração no Redis.
+ * <p>
+ * Enquanto o pagamento é criado, a chave guarda uma reserva ({@link #IN_PROGRESS}) com lease;
+ * a reserva nunca entra no L1.
+ */
 @Service
 public class IdempotencyService {
     
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    
+    // Remove a reserva apenas se ainda for a nossa (o lease pode ter expirado e outra requisição reservado)
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+    
     private final RedisTemplate<String, Object> redisTemplate;
+    private final Cache<String, PaymentResponse> localCache;
+    private final Duration leaseTtl;
     private static final String IDEMPOTENCY_PREFIX = "idempotency:";
     private static final long TTL_HOURS = 24;
     
-    public IdempotencyService(RedisTemplate<String, Object> redisTemplate) {
+    public IdempotencyService(RedisTemplate<String, Object> redisTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.lease-seconds:30}") long leaseSeconds,
+                              @Value("${idempotency.local-cache.max-size:10000}") long localCacheMaxSize,
+                              @Value("${idempotency.local-cache.ttl-seconds:10}") long localCacheTtlSeconds) {
         this.redisTemplate = redisTemplate;
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(localCacheMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(localCacheTtlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "idempotency.local");
     }
     
     public PaymentResponse getExistingResponse(String idempotencyKey) {
+        PaymentResponse cached = localCache.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String key = IDEMPOTENCY_PREFIX + idempotencyKey;
+        PaymentResponse response = (PaymentResponse) redisTemplate.opsForValue().get(key);
+        if (response != null && !IN_PROGRESS.equals(response.getStatus())) {
+            localCache.put(idempotencyKey, response);
+        }
+        return response;
+    }
+    
+    /**
+     * Reserva a chave com {@code SET NX} e lease.
+     *
+     * @return {@code null} se a reserva foi obtida, ou a resposta já gravada para a chave
+     * @throws IdempotencyConflictException se outra requisição com a mesma chave ainda está em andamento
+     */
+    public PaymentResponse reserve(String idempotencyKey, PaymentResponse reservation) {
+        PaymentResponse cached = localCache.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return cached;
+        }
+        
         String key = IDEMPOTENCY_PREFIX + idempotencyKey;
-        return (PaymentResponse) redisTemplate.opsForValue().get(key);
+        // Segunda tentativa cobre a chave expirando entre o SET NX e o GET
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, reservation, leaseTtl))) {
+                return null;
+            }
+            PaymentResponse existing = getExistingResponse(idempotencyKey);
+            if (existing == null) {
+                continue;
+            }
+            if (IN_PROGRESS.equals(existing.getStatus())) {
+                throw new IdempotencyConflictException(existing);
+            }
+            return existing;
+        }
+        throw new IllegalStateException("Could not reserve idempotency key: " + idempotencyKey);
+    }
+    
+    /**
+     * Versão em lote de {@link #reserve}: um pipeline de {@code SET NX} e um {@code MGET} para as chaves já ocupadas.
+     *
+     * @return respostas existentes por chave (inclusive reservas {@link #IN_PROGRESS} de outras requisições);
+     *         chaves ausentes no mapa foram reservadas
+     */
+    public Map<String, PaymentResponse> reserveAll(Map<String, PaymentResponse> reservations) {
+        Map<String, PaymentResponse> existing = new HashMap<>();
+        List<String> toReserve = new ArrayList<>();
+        for (String idempotencyKey : reservations.keySet()) {
+            PaymentResponse cached = localCache.getIfPresent(idempotencyKey);
+            if (cached != null) {
+                existing.put(idempotencyKey, cached);
+            } else {
+                toReserve.add(idempotencyKey);
+            }
+        }
+        if (toReserve.isEmpty()) {
+            return existing;
+        }
+        
+        List<Object> reserved = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                for (String idempotencyKey : toReserve) {
+                    redis.opsForValue().setIfAbsent(IDEMPOTENCY_PREFIX + idempotencyKey, reservations.get(idempotencyKey), leaseTtl);
+                }
+                return null;
+            }
+        });
+        
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < toReserve.size(); i++) {
+            if (!Boolean.TRUE.equals(reserved.get(i))) {
+                taken.add(toReserve.get(i));
+            }
+        }
+        if (taken.isEmpty()) {
+            return existing;
+        }
+        
+        List<Object> values = redisTemplate.opsForValue().multiGet(taken.stream().map(key -> IDEMPOTENCY_PREFIX + key).toList());
+        for (int i = 0; i < taken.size(); i++) {
+            String idempotencyKey = taken.get(i);
+            PaymentResponse response = values == null ? null : (PaymentResponse) values.get(i);
+            if (response == null) {
+                // Expirou entre o SET NX e o MGET: cai no caminho unitário
+                try {
+                    response = reserve(idempotencyKey, reservations.get(idempotencyKey));
+                } catch (IdempotencyConflictException e) {
+                    response = e.getInFlight();
+                }
+                if (response == null) {
+                    continue;
+                }
+            }
+            if (!IN_PROGRESS.equals(response.getStatus())) {
+                localCache.put(idempotencyKey, response);
+            }
+            existing.put(idempotencyKey, response);
+        }
+        return existing;
+    }
+    
+    public void release(String idempotencyKey, PaymentResponse reservation) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(IDEMPOTENCY_PREFIX + idempotencyKey), reservation);
     }
     
     public void storeResponse(String idempotencyKey, PaymentResponse response) {
         String key = IDEMPOTENCY_PREFIX + idempotencyKey;
         redisTemplate.opsForValue().set(key, response, TTL_HOURS, TimeUnit.HOURS);
+        localCache.put(idempotencyKey, response);
+    }
+    
+    public void storeResponses(Map<String, PaymentResponse> responses) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                responses.forEach((idempotencyKey, response) ->
+                    redis.opsForValue().set(IDEMPOTENCY_PREFIX + idempotencyKey, response, TTL_HOURS, TimeUnit.HOURS));
+                return null;
+            }
+        });
+        localCache.putAll(responses);
     }
 }
-
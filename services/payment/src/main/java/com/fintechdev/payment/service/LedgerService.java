@@ -1,32 +1,30 @@
 package com.fintechdev.payment.service;
 
 import com.fintechdev.payment.dto.PaymentRequest;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.fintechdev.payment.messaging.ConfirmedPublisher;
+import com.fintechdev.payment.messaging.PaymentEventCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class LedgerService {
     
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmedPublisher confirmedPublisher;
     
     @Value("${ledger.exchange:ledger}")
     private String ledgerExchange;
     
-    public LedgerService(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public LedgerService(ConfirmedPublisher confirmedPublisher) {
+        this.confirmedPublisher = confirmedPublisher;
     }
     
     public String appendEntry(String paymentId, PaymentRequest request) {
         String transactionId = java.util.UUID.randomUUID().toString();
         
         // Publish ledger entry event
-        String message = String.format(
-            "{\"transactionId\":\"%s\",\"paymentId\":\"%s\",\"accountId\":\"%s\",\"amount\":%s,\"currency\":\"%s\",\"type\":\"DEBIT\"}",
-            transactionId, paymentId, request.getAccountId(), request.getAmount(), request.getCurrency()
-        );
+        byte[] message = PaymentEventCodec.ledgerEntry(transactionId, paymentId, request);
         
-        rabbitTemplate.convertAndSend(ledgerExchange, "entry.append", message);
+        confirmedPublisher.send(ledgerExchange, "entry.append", PaymentEventCodec.message(message));
         
         return transactionId;
     }
@@ -1,5 +1,8 @@
 package com.fintechdev.payment.service;
 
+import com.fintechdev.payment.dto.BatchPaymentItem;
+import com.fintechdev.payment.dto.BatchPaymentItemResponse;
+import com.fintechdev.payment.dto.BatchPaymentResponse;
 import com.fintechdev.payment.dto.PaymentRequest;
 import com.fintechdev.payment.dto.PaymentResponse;
 import com.fintechdev.payment.messaging.PaymentEventPublisher;
@@ -12,8 +15,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -23,16 +33,22 @@ public class PaymentService {
     private final IdempotencyService idempotencyService;
     private final PaymentEventPublisher eventPublisher;
     private final SagaStateRepository sagaRepository;
+    private final SagaDeadlineScheduler deadlineScheduler;
+    private final PaymentStatusCache statusCache;
     private final long sagaTimeoutSeconds;
     
     public PaymentService(
             IdempotencyService idempotencyService,
             PaymentEventPublisher eventPublisher,
             SagaStateRepository sagaRepository,
+            SagaDeadlineScheduler deadlineScheduler,
+            PaymentStatusCache statusCache,
             @Value("${saga.timeout.seconds:30}") long sagaTimeoutSeconds) {
         this.idempotencyService = idempotencyService;
         this.eventPublisher = eventPublisher;
         this.sagaRepository = sagaRepository;
+        this.deadlineScheduler = deadlineScheduler;
+        this.statusCache = statusCache;
         this.sagaTimeoutSeconds = sagaTimeoutSeconds;
     }
     
@@ -42,40 +58,35 @@ public class PaymentService {
     public PaymentResponse processPayment(PaymentRequest request, String idempotencyKey) {
         long startTime = System.currentTimeMillis();
         
-        try {
-            // Check idempotency
-            if (idempotencyKey != null) {
-                PaymentResponse existing = idempotencyService.getExistingResponse(idempotencyKey);
-                if (existing != null) {
-                    logger.info("Idempotent request detected, returning existing payment: {}", existing.getPaymentId());
-                    return existing;
-                }
+        String paymentId = UUID.randomUUID().toString();
+        
+        // Reserva atômica da chave (SET NX com lease): uma retentativa concorrente recebe 409
+        // em vez de criar outro pagamento
+        if (idempotencyKey != null) {
+            PaymentResponse reservation = new PaymentResponse(paymentId, IdempotencyService.IN_PROGRESS);
+            PaymentResponse existing = idempotencyService.reserve(idempotencyKey, reservation);
+            if (existing != null) {
+                logger.info("Idempotent request detected, returning existing payment: {}", existing.getPaymentId());
+                return existing;
             }
-            
-            String paymentId = UUID.randomUUID().toString();
-            
+            afterRollback(() -> idempotencyService.release(idempotencyKey, reservation));
+        }
+        
+        try {
             // Criar estado inicial da SAGA
-            SagaState saga = new SagaState();
-            saga.setPaymentId(paymentId);
-            saga.setStatus(SagaState.SagaStatus.PROCESSING);
-            saga.setAccountId(request.getAccountId());
-            saga.setAmount(request.getAmount().toString());
-            saga.setCurrency(request.getCurrency());
-            saga.setLedgerCompleted(false);
-            saga.setBalanceCompleted(false);
-            saga.setNotificationSent(false);
-            // Definir timeout: agora + timeout configurado
-            saga.setTimeoutAt(Instant.now().plusSeconds(sagaTimeoutSeconds));
+            SagaState saga = newSaga(paymentId, request);
             sagaRepository.save(saga);
+            statusCache.initialize(paymentId, SagaState.SagaStatus.PROCESSING);
+            afterCommit(() -> deadlineScheduler.schedule(paymentId, saga.getTimeoutAt()));
             
-            // Publicar evento de início da SAGA (dispara processamento assíncrono)
+            // Evento de início da SAGA vai para o outbox na mesma transação; o OutboxRelay publica
             eventPublisher.publishPaymentInitiated(paymentId, request);
             
             PaymentResponse response = new PaymentResponse(paymentId, "PROCESSING");
             
-            // Store for idempotency
+            // Store for idempotency (substitui a reserva só depois do commit da SAGA)
             if (idempotencyKey != null) {
-                idempotencyService.storeResponse(idempotencyKey, response);
+                afterCommit(() -> idempotencyService.storeResponse(idempotencyKey, response));
             }
             
             long latency = System.currentTimeMillis() - startTime;
@@ -89,7 +100,144 @@ public class PaymentService {
         }
     }
     
+    /**
+     * Cria vários pagamentos em uma transação: reserva das chaves em pipeline no Redis,
+     * INSERT das SAGAs em batch JDBC e um único batch no outbox. Itens com chave já usada
+     * (ou repetida no lote) devolvem o pagamento existente em vez de criar outro.
+     */
+    @CircuitBreaker(name = "paymentService")
+    @Transactional
+    public BatchPaymentResponse processBatch(List<BatchPaymentItem> items) {
+        long startTime = System.currentTimeMillis();
+        
+        // A primeira ocorrência de cada chave é a que cria o pagamento
+        Map<String, PaymentResponse> reservations = new LinkedHashMap<>();
+        for (BatchPaymentItem item : items) {
+            if (item.getIdempotencyKey() != null) {
+                reservations.computeIfAbsent(item.getIdempotencyKey(),
+                    key -> new PaymentResponse(UUID.randomUUID().toString(), IdempotencyService.IN_PROGRESS));
+            }
+        }
+        Map<String, PaymentResponse> existing = reservations.isEmpty()
+            ? Map.of()
+            : idempotencyService.reserveAll(reservations);
+        Map<String, PaymentResponse> reserved = new HashMap<>(reservations);
+        reserved.keySet().removeAll(existing.keySet());
+        afterRollback(() -> reserved.forEach(idempotencyService::release));
+        
+        List<BatchPaymentItemResponse> results = new ArrayList<>(items.size());
+        Map<String, BatchPaymentItem> toCreate = new LinkedHashMap<>();
+        Map<String, PaymentResponse> responsesByKey = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchPaymentItem item = items.get(i);
+            String idempotencyKey = item.getIdempotencyKey();
+            
+            PaymentResponse prior = idempotencyKey == null ? null : existing.get(idempotencyKey);
+            if (prior != null) {
+                BatchPaymentItemResponse.Outcome outcome = IdempotencyService.IN_PROGRESS.equals(prior.getStatus())
+                    ? BatchPaymentItemResponse.Outcome.CONFLICT
+                    : BatchPaymentItemResponse.Outcome.DUPLICATE;
+                results.add(new BatchPaymentItemResponse(i, idempotencyKey, outcome, prior));
+                continue;
+            }
+            if (idempotencyKey != null && responsesByKey.containsKey(idempotencyKey)) {
+                results.add(new BatchPaymentItemResponse(i, idempotencyKey,
+                    BatchPaymentItemResponse.Outcome.DUPLICATE, responsesByKey.get(idempotencyKey)));
+                continue;
+            }
+            
+            String paymentId = idempotencyKey != null
+                ? reservations.get(idempotencyKey).getPaymentId()
+                : UUID.randomUUID().toString();
+            PaymentResponse response = new PaymentResponse(paymentId, "PROCESSING");
+            toCreate.put(paymentId, item);
+            if (idempotencyKey != null) {
+                responsesByKey.put(idempotencyKey, response);
+            }
+            results.add(new BatchPaymentItemResponse(i, idempotencyKey, BatchPaymentItemResponse.Outcome.CREATED, response));
+        }
+        
+        if (!toCreate.isEmpty()) {
+            try {
+                List<SagaState> sagas = new ArrayList<>(toCreate.size());
+                toCreate.forEach((paymentId, item) -> sagas.add(newSaga(paymentId, item)));
+                // hibernate.jdbc.batch_size agrupa os INSERTs no flush do commit
+                sagaRepository.saveAll(sagas);
+                statusCache.initializeAll(toCreate.keySet(), SagaState.SagaStatus.PROCESSING);
+                eventPublisher.publishPaymentsInitiated(toCreate);
+                
+                afterCommit(() -> sagas.forEach(saga -> deadlineScheduler.schedule(saga.getPaymentId(), saga.getTimeoutAt())));
+                if (!responsesByKey.isEmpty()) {
+                    afterCommit(() -> idempotencyService.storeResponses(responsesByKey));
+                }
+            } catch (Exception e) {
+                logger.error("Error processing payment batch", e);
+                throw new RuntimeException("Failed to process payment batch", e);
+            }
+        }
+        
+        long latency = System.currentTimeMillis() - startTime;
+        logger.info("Payment batch initiated: items={}, created={}, latency_ms={}", items.size(), toCreate.size(), latency);
+        
+        return new BatchPaymentResponse(results);
+    }
+    
+    private SagaState newSaga(String paymentId, PaymentRequest request) {
+        SagaState saga = new SagaState();
+        saga.setPaymentId(paymentId);
+        saga.setStatus(SagaState.SagaStatus.PROCESSING);
+        saga.setAccountId(request.getAccountId());
+        saga.setAmount(request.getAmount().toString());
+        saga.setCurrency(request.getCurrency());
+        saga.setLedgerCompleted(false);
+        saga.setBalanceCompleted(false);
+        saga.setNotificationSent(false);
+        // Definir timeout: agora + timeout configurado
+        saga.setTimeoutAt(Instant.now().plusSeconds(sagaTimeoutSeconds));
+        return saga;
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    // A SAGA já está commitada; falhas aqui não devem virar erro na resposta HTTP
+                    logger.warn("After-commit action failed", e);
+                }
+            }
+        });
+    }
+    
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    logger.warn("After-rollback action failed", e);
+                }
+            }
+        });
+    }
+    
     public PaymentResponse fallbackProcessPayment(PaymentRequest request, String idempotencyKey, Exception ex) {
+        if (ex instanceof IdempotencyConflictException conflict) {
+            throw conflict;
+        }
         logger.warn("Circuit breaker opened, using fallback for payment processing");
         throw new RuntimeException("Payment service temporarily unavailable", ex);
     }
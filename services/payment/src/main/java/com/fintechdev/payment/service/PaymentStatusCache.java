@@ -0,0 +1,223 @@
+package com.fintechdev.payment.service;
+
+import com.fintechdev.payment.dto.PaymentResponse;
+import com.fintechdev.payment.model.SagaState;
+import com.fintechdev.payment.repository.SagaStateRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Status dos pagamentos para {@code GET /payments}: cache local (Caffeine) na frente do Redis,
+ * com o banco só como fallback. Cada transição da SAGA grava o novo status aqui, então consultas
+ * repetidas não chegam ao Postgres.
+ * <p>
+ * O L1 tem TTL curto porque transições feitas por outra instância só chegam pelo Redis.
+ * No Redis, status não terminais têm TTL curto ({@code redis-active-ttl-seconds}): se uma transição
+ * não conseguir ser gravada nem a chave antiga removida, o status velho expira logo e a leitura
+ * seguinte vai ao banco. Status terminais não mudam mais e ficam pelo {@code redis-ttl-hours}.
+ * SAGAs já arquivadas pelo {@link SagaArchiver} são buscadas em {@code saga_states_archive}.
+ */
+@Service
+public class PaymentStatusCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusCache.class);
+    private static final String STATUS_PREFIX = "payment-status:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SagaStateRepository sagaRepository;
+    private final Cache<String, PaymentResponse> localCache;
+    private final Duration redisTtl;
+    private final Duration redisActiveTtl;
+    private final boolean archiveEnabled;
+
+    public PaymentStatusCache(RedisTemplate<String, Object> redisTemplate,
+                              SagaStateRepository sagaRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${payment.status-cache.redis-ttl-hours:24}") long redisTtlHours,
+                              @Value("${payment.status-cache.redis-active-ttl-seconds:300}") long redisActiveTtlSeconds,
+                              @Value("${payment.status-cache.local.max-size:100000}") long localMaxSize,
+                              @Value("${payment.status-cache.local.ttl-ms:1000}") long localTtlMs,
+                              @Value("${saga.archive.enabled:true}") boolean archiveEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.sagaRepository = sagaRepository;
+        this.redisTtl = Duration.ofHours(redisTtlHours);
+        this.redisActiveTtl = Duration.ofSeconds(redisActiveTtlSeconds);
+        this.archiveEnabled = archiveEnabled;
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofMillis(localTtlMs))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "payment.status.local");
+    }
+
+    /**
+     * Status inicial da SAGA. Usa {@code SET NX}: se uma transição chegou antes (evento mais rápido
+     * que o after-commit da criação), ela não é sobrescrita por PROCESSING.
+     */
+    public void initialize(String paymentId, SagaState.SagaStatus status) {
+        runAfterCommit(() -> {
+            PaymentResponse response = new PaymentResponse(paymentId, status.name());
+            redisTemplate.opsForValue().setIfAbsent(STATUS_PREFIX + paymentId, response, ttlFor(status));
+            localCache.asMap().putIfAbsent(paymentId, response);
+        });
+    }
+
+    /**
+     * Versão em lote de {@link #initialize} para o {@code POST /payments/batch}: um pipeline no Redis.
+     */
+    public void initializeAll(Collection<String> paymentIds, SagaState.SagaStatus status) {
+        runAfterCommit(() -> {
+            List<PaymentResponse> responses = paymentIds.stream()
+                .map(paymentId -> new PaymentResponse(paymentId, status.name()))
+                .toList();
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    for (PaymentResponse response : responses) {
+                        redis.opsForValue().setIfAbsent(STATUS_PREFIX + response.getPaymentId(), response, ttlFor(status));
+                    }
+                    return null;
+                }
+            });
+            responses.forEach(response -> localCache.asMap().putIfAbsent(response.getPaymentId(), response));
+        });
+    }
+
+    /**
+     * Registra uma transição. Dentro de uma transação, a gravação acontece só após o commit.
+     * Se a gravação falhar, a chave é removida: a próxima leitura vai ao banco em vez de servir o
+     * status anterior (uma transição terminal não tem outra depois que o corrija).
+     */
+    public void update(String paymentId, SagaState.SagaStatus status) {
+        runAfterCommit(() -> {
+            PaymentResponse response = new PaymentResponse(paymentId, status.name());
+            try {
+                redisTemplate.opsForValue().set(STATUS_PREFIX + paymentId, response, ttlFor(status));
+            } catch (RuntimeException e) {
+                localCache.invalidate(paymentId);
+                redisTemplate.delete(STATUS_PREFIX + paymentId);
+                throw e;
+            }
+            localCache.put(paymentId, response);
+            // Acorda clientes em SSE/long-poll de todas as instâncias
+            redisTemplate.convertAndSend(PaymentStatusNotifier.CHANNEL, response);
+        });
+    }
+
+    public Optional<PaymentResponse> get(String paymentId) {
+        PaymentResponse cached = localCache.getIfPresent(paymentId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(getAll(List.of(paymentId)).get(paymentId));
+    }
+
+    /**
+     * Busca vários status: L1, depois um {@code MGET} no Redis, e uma única consulta ao banco para o resto.
+     * Pagamentos desconhecidos ficam fora do mapa.
+     */
+    public Map<String, PaymentResponse> getAll(Collection<String> paymentIds) {
+        Map<String, PaymentResponse> found = new LinkedHashMap<>(localCache.getAllPresent(paymentIds));
+        List<String> missing = paymentIds.stream().filter(id -> !found.containsKey(id)).distinct().toList();
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<Object> cached = redisTemplate.opsForValue().multiGet(missing.stream().map(id -> STATUS_PREFIX + id).toList());
+        List<String> fromDb = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            PaymentResponse response = cached == null ? null : (PaymentResponse) cached.get(i);
+            if (response != null) {
+                found.put(missing.get(i), response);
+                localCache.put(missing.get(i), response);
+            } else {
+                fromDb.add(missing.get(i));
+            }
+        }
+        if (fromDb.isEmpty()) {
+            return found;
+        }
+
+        List<SagaState> sagas = new ArrayList<>(sagaRepository.findByPaymentIdIn(fromDb));
+        if (archiveEnabled && sagas.size() < fromDb.size()) {
+            sagas.addAll(findArchived(fromDb, sagas));
+        }
+        for (SagaState saga : sagas) {
+            Instant updatedAt = saga.getUpdatedAt() != null ? saga.getUpdatedAt() : saga.getCreatedAt();
+            PaymentResponse response = new PaymentResponse(saga.getPaymentId(), saga.getStatus().name());
+            response.setTimestamp(updatedAt);
+            found.put(saga.getPaymentId(), response);
+            // Não sobrescreve uma transição que tenha chegado durante a consulta
+            redisTemplate.opsForValue().setIfAbsent(STATUS_PREFIX + saga.getPaymentId(), response, ttlFor(saga.getStatus()));
+            localCache.put(saga.getPaymentId(), response);
+        }
+        logger.debug("Payment status cache miss served from database: requested={}, loaded={}", fromDb.size(), found.size());
+        return found;
+    }
+
+    private List<SagaState> findArchived(List<String> paymentIds, List<SagaState> active) {
+        Set<String> missing = new HashSet<>(paymentIds);
+        active.forEach(saga -> missing.remove(saga.getPaymentId()));
+        try {
+            return sagaRepository.findArchivedByPaymentIdIn(missing);
+        } catch (Exception e) {
+            // Tabela de arquivo ainda não criada (ex.: schema indisponível na subida do SagaArchiver)
+            logger.debug("Saga archive lookup failed: paymentIds={}", missing.size(), e);
+            return List.of();
+        }
+    }
+
+    private Duration ttlFor(SagaState.SagaStatus status) {
+        return status == SagaState.SagaStatus.COMPLETED || status == SagaState.SagaStatus.COMPENSATED
+            ? redisTtl
+            : redisActiveTtl;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            safeRun(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                safeRun(action);
+            }
+        });
+    }
+
+    private void safeRun(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            // O banco continua sendo a fonte da verdade: uma chave que ficou para trás (Redis fora do ar
+            // até para o DELETE) é de status não terminal e expira em redis-active-ttl-seconds
+            logger.warn("Failed to update payment status cache", e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.fintechdev.payment.service;
+
+import com.fintechdev.payment.dto.PaymentResponse;
+import com.fintechdev.payment.model.SagaState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Acorda clientes esperando o fim de uma SAGA (SSE e long-poll) sem segurar thread do servlet.
+ * <p>
+ * Cada transição gravada no {@link PaymentStatusCache} é publicada no canal Redis {@link #CHANNEL};
+ * todas as instâncias assinam o canal, então o cliente é notificado mesmo quando o evento da SAGA
+ * foi consumido por outra réplica.
+ * <p>
+ * A escrita SSE não roda na thread do listener Redis: cada emitter tem sua fila de eventos, drenada
+ * em ordem por um pool limitado. Um cliente lento que acumula mais de
+ * {@code payment.status-events.max-pending-per-emitter} eventos, uma escrita que falha ou um pool
+ * saturado encerram o emitter e o removem dos listeners.
+ */
+@Service
+public class PaymentStatusNotifier implements MessageListener {
+
+    public static final String CHANNEL = "payment-status";
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusNotifier.class);
+    private static final Set<String> TERMINAL_STATUSES = Set.of(
+        SagaState.SagaStatus.COMPLETED.name(), SagaState.SagaStatus.COMPENSATED.name());
+
+    private final ConcurrentHashMap<String, Set<Consumer<PaymentResponse>>> listeners = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final PaymentStatusCache statusCache;
+    private final long sseTimeoutMs;
+    private final int maxPendingPerEmitter;
+    private final ThreadPoolExecutor sendExecutor;
+    private final Counter droppedEmitters;
+
+    public PaymentStatusNotifier(RedisTemplate<String, Object> redisTemplate,
+                                 PaymentStatusCache statusCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${payment.status-events.sse-timeout-ms:120000}") long sseTimeoutMs,
+                                 @Value("${payment.status-events.send-threads:4}") int sendThreads,
+                                 @Value("${payment.status-events.send-queue-capacity:10000}") int sendQueueCapacity,
+                                 @Value("${payment.status-events.max-pending-per-emitter:16}") int maxPendingPerEmitter) {
+        this.redisTemplate = redisTemplate;
+        this.statusCache = statusCache;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.maxPendingPerEmitter = maxPendingPerEmitter;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(sendQueueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "sse-status-send-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.droppedEmitters = Counter.builder("payment.status.sse.dropped")
+            .description("SSE emitters closed because a send failed or the client fell behind")
+            .register(meterRegistry);
+        Gauge.builder("payment.status.waiters", listeners, ConcurrentHashMap::size)
+            .description("Payments with clients waiting for a status change")
+            .register(meterRegistry);
+        Gauge.builder("payment.status.sse.send-queue", sendExecutor, executor -> executor.getQueue().size())
+            .description("SSE emitters waiting for a send thread")
+            .register(meterRegistry);
+    }
+
+    public static boolean isTerminal(PaymentResponse status) {
+        return TERMINAL_STATUSES.contains(status.getStatus());
+    }
+
+    /**
+     * Abre um stream SSE: envia o status atual e cada transição, e encerra no status terminal.
+     *
+     * @return vazio se o pagamento não existe
+     */
+    public Optional<SseEmitter> stream(String paymentId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        EmitterSender sender = new EmitterSender(paymentId, emitter);
+        // Assina antes de ler o status atual para não perder uma transição entre as duas coisas
+        sender.unsubscribe = subscribe(paymentId, sender::offer);
+        emitter.onCompletion(sender::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> sender.close());
+
+        Optional<PaymentResponse> current = statusCache.get(paymentId);
+        if (current.isEmpty()) {
+            sender.close();
+            return Optional.empty();
+        }
+        sender.offer(current.get());
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Long-poll: responde quando a SAGA chega a um status terminal ou, no timeout, com o status atual.
+     */
+    public DeferredResult<ResponseEntity<PaymentResponse>> awaitTerminal(String paymentId, Duration timeout) {
+        DeferredResult<ResponseEntity<PaymentResponse>> result = new DeferredResult<>(timeout.toMillis());
+        Runnable unsubscribe = subscribe(paymentId, status -> {
+            if (isTerminal(status)) {
+                result.setResult(ResponseEntity.ok(status));
+            }
+        });
+        result.onCompletion(unsubscribe);
+        result.onTimeout(() -> result.setResult(currentStatus(paymentId)));
+
+        Optional<PaymentResponse> current = statusCache.get(paymentId);
+        if (current.isEmpty()) {
+            result.setResult(ResponseEntity.notFound().build());
+        } else if (isTerminal(current.get())) {
+            result.setResult(ResponseEntity.ok(current.get()));
+        }
+        return result;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        PaymentResponse status;
+        try {
+            status = (PaymentResponse) redisTemplate.getValueSerializer().deserialize(message.getBody());
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed payment status notification", e);
+            return;
+        }
+        if (status == null) {
+            return;
+        }
+        Set<Consumer<PaymentResponse>> waiting = listeners.get(status.getPaymentId());
+        if (waiting != null) {
+            waiting.forEach(listener -> listener.accept(status));
+        }
+    }
+
+    private Runnable subscribe(String paymentId, Consumer<PaymentResponse> listener) {
+        listeners.computeIfAbsent(paymentId, id -> ConcurrentHashMap.newKeySet()).add(listener);
+        return () -> listeners.computeIfPresent(paymentId, (id, waiting) -> {
+            waiting.remove(listener);
+            return waiting.isEmpty() ? null : waiting;
+        });
+    }
+
+    private ResponseEntity<PaymentResponse> currentStatus(String paymentId) {
+        return statusCache.get(paymentId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PreDestroy
+    void stop() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Fila de eventos de um emitter. No máximo uma thread do pool drena a fila por vez, o que mantém
+     * a ordem dos eventos sem bloquear quem publica.
+     */
+    private final class EmitterSender implements Runnable {
+
+        private final String paymentId;
+        private final SseEmitter emitter;
+        private final ConcurrentLinkedQueue<PaymentResponse> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile Runnable unsubscribe = () -> { };
+
+        EmitterSender(String paymentId, SseEmitter emitter) {
+            this.paymentId = paymentId;
+            this.emitter = emitter;
+        }
+
+        void offer(PaymentResponse status) {
+            if (closed) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > maxPendingPerEmitter) {
+                drop("client too slow");
+                return;
+            }
+            pending.add(status);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                drop("send pool saturated");
+            }
+        }
+
+        @Override
+        public void run() {
+            PaymentResponse status;
+            while (!closed && (status = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                send(status);
+            }
+            scheduled.set(false);
+            // Evento enfileirado entre o último poll e a liberação da flag
+            if (!closed && !pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(PaymentResponse status) {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(status));
+                if (isTerminal(status)) {
+                    close();
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // Cliente desconectou ou a escrita estourou o timeout do container
+                droppedEmitters.increment();
+                close();
+                emitter.completeWithError(e);
+            } catch (IllegalStateException e) {
+                // Emitter já encerrado (timeout do SSE)
+                logger.debug("Status event dropped for closed emitter: paymentId={}", paymentId);
+                close();
+            }
+        }
+
+        private void drop(String reason) {
+            logger.warn("Closing SSE status stream: paymentId={}, reason={}", paymentId, reason);
+            droppedEmitters.increment();
+            close();
+            emitter.completeWithError(new IllegalStateException("SSE status stream closed: " + reason));
+        }
+
+        void close() {
+            closed = true;
+            unsubscribe.run();
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.fintechdev.payment.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fintechdev.payment.dto.BatchPaymentItem;
+import com.fintechdev.payment.dto.BatchPaymentItemResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingestão NDJSON para {@code POST /payments/stream}: lê uma linha por pagamento, processa em
+ * micro-lotes pelo {@link PaymentService#processBatch} e escreve um resultado NDJSON por linha.
+ * <p>
+ * A próxima linha só é lida depois que o lote anterior foi gravado e enviado ao cliente, então
+ * a memória fica limitada a um micro-lote e o controle de fluxo do TCP faz o backpressure.
+ * Um erro no processamento de um micro-lote (que é revertido inteiro) vira uma linha
+ * {@code FAILED} para cada item dele e o stream segue com as próximas linhas. Linhas maiores que
+ * {@code payment.stream.max-line-length} também: o resto delas é descartado sem ficar em memória.
+ */
+@Service
+public class PaymentStreamProcessor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStreamProcessor.class);
+    private static final byte[] NEWLINE = {'\n'};
+    
+    private final PaymentService paymentService;
+    private final Validator validator;
+    private final ObjectReader itemReader;
+    private final ObjectWriter resultWriter;
+    private final int batchSize;
+    private final int maxLineLength;
+    
+    public PaymentStreamProcessor(PaymentService paymentService,
+                                  Validator validator,
+                                  ObjectMapper objectMapper,
+                                  @Value("${payment.stream.batch-size:200}") int batchSize,
+                                  @Value("${payment.stream.max-line-length:65536}") int maxLineLength) {
+        this.paymentService = paymentService;
+        this.validator = validator;
+        this.itemReader = objectMapper.readerFor(BatchPaymentItem.class);
+        this.resultWriter = objectMapper.writerFor(BatchPaymentItemResponse.class);
+        this.batchSize = batchSize;
+        this.maxLineLength = maxLineLength;
+    }
+    
+    public void process(InputStream input, OutputStream output) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(
+            new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)), maxLineLength);
+        List<BatchPaymentItem> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        int index = 0;
+        int total = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (reader.oversized()) {
+                writeResult(output, BatchPaymentItemResponse.failed(index++, null,
+                    "Line exceeds " + maxLineLength + " characters"));
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            int lineIndex = index++;
+            BatchPaymentItem item;
+            try {
+                item = itemReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                writeResult(output, BatchPaymentItemResponse.invalid(lineIndex, null, "Malformed JSON: " + e.getOriginalMessage()));
+                continue;
+            }
+            Set<ConstraintViolation<BatchPaymentItem>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                String error = violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+                writeResult(output, BatchPaymentItemResponse.invalid(lineIndex, item.getIdempotencyKey(), error));
+                continue;
+            }
+            
+            batch.add(item);
+            batchIndexes.add(lineIndex);
+            if (batch.size() == batchSize) {
+                total += flush(batch, batchIndexes, output);
+            }
+        }
+        total += flush(batch, batchIndexes, output);
+        logger.info("Payment stream processed: lines={}, accepted={}", index, total);
+    }
+    
+    private int flush(List<BatchPaymentItem> batch, List<Integer> batchIndexes, OutputStream output) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int processed = batch.size();
+        List<BatchPaymentItemResponse> results;
+        try {
+            results = paymentService.processBatch(batch).getResults();
+            for (BatchPaymentItemResponse result : results) {
+                // processBatch numera a partir de 0 dentro do micro-lote; devolve a posição no stream
+                result.setIndex(batchIndexes.get(result.getIndex()));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Payment stream micro-batch failed: lines={}..{}",
+                batchIndexes.get(0), batchIndexes.get(processed - 1), e);
+            results = new ArrayList<>(processed);
+            for (int i = 0; i < processed; i++) {
+                results.add(BatchPaymentItemResponse.failed(batchIndexes.get(i), batch.get(i).getIdempotencyKey(),
+                    "Batch processing failed"));
+            }
+            processed = 0;
+        }
+        batch.clear();
+        batchIndexes.clear();
+        for (BatchPaymentItemResponse result : results) {
+            writeResult(output, result);
+        }
+        output.flush();
+        return processed;
+    }
+    
+    private void writeResult(OutputStream output, BatchPaymentItemResponse result) throws IOException {
+        output.write(resultWriter.writeValueAsBytes(result));
+        output.write(NEWLINE);
+    }
+    
+    /**
+     * Lê linhas de no máximo {@code maxLength} caracteres; de uma linha maior só sobra o aviso
+     * ({@link #oversized()}), e o restante é consumido até o próximo {@code \n} sem ser guardado.
+     */
+    private static final class BoundedLineReader {
+        
+        private final Reader reader;
+        private final int maxLength;
+        private final StringBuilder line;
+        private boolean oversized;
+        
+        BoundedLineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+            this.line = new StringBuilder(Math.min(maxLength, 1024));
+        }
+        
+        String readLine() throws IOException {
+            line.setLength(0);
+            oversized = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            for (; c != -1 && c != '\n'; c = reader.read()) {
+                if (oversized) {
+                    continue;
+                }
+                // O '\r' de um CRLF não conta para o limite
+                if (line.length() > maxLength || (line.length() == maxLength && c != '\r')) {
+                    oversized = true;
+                    line.setLength(0);
+                    continue;
+                }
+                line.append((char) c);
+            }
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                line.setLength(end - 1);
+            }
+            return line.toString();
+        }
+        
+        boolean oversized() {
+            return oversized;
+        }
+    }
+}
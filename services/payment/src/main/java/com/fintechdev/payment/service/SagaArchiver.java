@@ -0,0 +1,151 @@
+package com.fintechdev.payment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Mantém {@code saga_states} restrita ao conjunto de trabalho: SAGAs terminais (COMPLETED/COMPENSATED)
+ * mais antigas que a retenção são movidas em lote para {@code saga_states_archive}, particionada por
+ * mês de {@code created_at}. Também cria os índices parciais que o Hibernate não sabe declarar; o de
+ * timeout é criado mesmo com o arquivamento desligado, porque a varredura de timeouts depende dele.
+ * <p>
+ * O schema de {@code saga_states} continua gerenciado pelo Hibernate; a tabela de arquivo copia
+ * suas colunas com {@code LIKE} só na criação. Por isso a movimentação lista as colunas nos dois
+ * lados ({@link #ARCHIVED_COLUMNS}): uma coluna nova na tabela quente (ddl-auto) não desloca valores
+ * nem quebra o arquivamento, e só passa a ser arquivada depois de entrar na lista e no arquivo.
+ */
+@Component
+public class SagaArchiver implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaArchiver.class);
+
+    // Timeouts só olham SAGAs em andamento: índice pequeno mesmo com histórico grande
+    private static final String TIMEOUT_INDEX_DDL =
+        "CREATE INDEX IF NOT EXISTS idx_saga_states_processing_timeout ON saga_states (timeout_at) " +
+            "WHERE status = 'PROCESSING'";
+
+    private static final String[] ARCHIVE_DDL = {
+        // Candidatas ao arquivamento, sem varrer as ativas
+        "CREATE INDEX IF NOT EXISTS idx_saga_states_terminal_created_at ON saga_states (created_at) " +
+            "WHERE status IN ('COMPLETED', 'COMPENSATED')",
+        "CREATE TABLE IF NOT EXISTS saga_states_archive (LIKE saga_states INCLUDING DEFAULTS) " +
+            "PARTITION BY RANGE (created_at)",
+        // Histórico anterior às partições mensais (primeira migração)
+        "CREATE TABLE IF NOT EXISTS saga_states_archive_default PARTITION OF saga_states_archive DEFAULT",
+        "CREATE INDEX IF NOT EXISTS idx_saga_states_archive_payment_id ON saga_states_archive (payment_id)"
+    };
+
+    static final String ARCHIVED_COLUMNS =
+        "id, payment_id, status, account_id, amount, currency, ledger_completed, balance_completed, " +
+        "notification_sent, failure_reason, created_at, updated_at, timeout_at";
+
+    private static final String ARCHIVE_BATCH =
+        "WITH moved AS (" +
+        "DELETE FROM saga_states WHERE id IN (" +
+        "SELECT id FROM saga_states WHERE status IN ('COMPLETED', 'COMPENSATED') AND created_at < ? " +
+        "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING " + ARCHIVED_COLUMNS + ") " +
+        "INSERT INTO saga_states_archive (" + ARCHIVED_COLUMNS + ") SELECT " + ARCHIVED_COLUMNS + " FROM moved";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter archivedCounter;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private volatile boolean schemaReady;
+
+    public SagaArchiver(JdbcTemplate jdbcTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${saga.archive.enabled:true}") boolean enabled,
+                        @Value("${saga.archive.retention-days:7}") long retentionDays,
+                        @Value("${saga.archive.batch-size:5000}") int batchSize,
+                        @Value("${saga.archive.max-batches:20}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.retention = Duration.ofDays(retentionDays);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.archivedCounter = Counter.builder("saga.archive.moved")
+            .description("Terminal sagas moved to saga_states_archive")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            jdbcTemplate.execute(TIMEOUT_INDEX_DDL);
+        } catch (Exception e) {
+            logger.warn("Saga timeout index not created", e);
+        }
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (String ddl : ARCHIVE_DDL) {
+                jdbcTemplate.execute(ddl);
+            }
+            ensureMonthlyPartitions();
+            schemaReady = true;
+        } catch (Exception e) {
+            logger.warn("Saga archive schema not available, archiving disabled", e);
+        }
+    }
+
+    /**
+     * Move SAGAs terminais antigas em lotes; cada lote é um único DELETE ... RETURNING + INSERT
+     * com {@code SKIP LOCKED}, então réplicas podem rodar ao mesmo tempo sem disputar linhas.
+     */
+    @Scheduled(fixedDelayString = "${saga.archive.interval-ms:60000}")
+    public void archive() {
+        if (!schemaReady) {
+            return;
+        }
+        try {
+            ensureMonthlyPartitions();
+            Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+            int total = 0;
+            int batches = 0;
+            int moved;
+            do {
+                moved = jdbcTemplate.update(ARCHIVE_BATCH, cutoff, batchSize);
+                total += moved;
+                batches++;
+            } while (moved == batchSize && batches < maxBatchesPerRun);
+
+            if (total > 0) {
+                archivedCounter.increment(total);
+                logger.info("Terminal sagas archived: count={}, cutoff={}", total, cutoff.toInstant());
+            }
+        } catch (Exception e) {
+            logger.error("Saga archiving failed, will retry", e);
+        }
+    }
+
+    /**
+     * Cria com antecedência as partições do mês corrente e do próximo; como o arquivamento só
+     * recebe linhas antigas, nenhuma linha do mês cai na partição default antes dela existir.
+     */
+    private void ensureMonthlyPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (YearMonth month : new YearMonth[] {current, current.plusMonths(1)}) {
+            jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS saga_states_archive_y%dm%02d PARTITION OF saga_states_archive " +
+                    "FOR VALUES FROM ('%s-01 00:00:00+00') TO ('%s-01 00:00:00+00')",
+                month.getYear(), month.getMonthValue(), month, month.plusMonths(1)));
+        }
+    }
+}
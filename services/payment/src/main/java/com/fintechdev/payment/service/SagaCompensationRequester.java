@@ -0,0 +1,80 @@
+package com.fintechdev.payment.service;
+
+import com.fintechdev.payment.dto.PaymentRequest;
+import com.fintechdev.payment.messaging.PaymentEventPublisher;
+import com.fintechdev.payment.model.SagaState;
+import com.fintechdev.payment.repository.SagaStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Publica os pedidos de compensação das etapas de uma SAGA.
+ * <p>
+ * O pedido feito na falha (ou no timeout) cobre só as etapas concluídas até ali. Uma conclusão que
+ * chega depois, com a SAGA já em compensação, ainda liga a flag no banco; quem aplicou a transição
+ * (listener ou flush do write-behind) vê que a flag mudou agora e pede a compensação dessa etapa.
+ */
+@Component
+public class SagaCompensationRequester {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaCompensationRequester.class);
+
+    private final SagaStateRepository sagaRepository;
+    private final PaymentEventPublisher eventPublisher;
+
+    public SagaCompensationRequester(SagaStateRepository sagaRepository, PaymentEventPublisher eventPublisher) {
+        this.sagaRepository = sagaRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public static boolean isCompensating(String status) {
+        return SagaState.SagaStatus.COMPENSATING.name().equals(status)
+            || SagaState.SagaStatus.COMPENSATED.name().equals(status);
+    }
+
+    /**
+     * Compensa as etapas que a SAGA já tinha concluído ao entrar em compensação.
+     */
+    public void requestCompleted(SagaState saga) {
+        request(saga, Boolean.TRUE.equals(saga.getLedgerCompleted()), Boolean.TRUE.equals(saga.getBalanceCompleted()));
+    }
+
+    /**
+     * Compensa etapas concluídas depois que a SAGA entrou em compensação.
+     */
+    public void requestLateSteps(String paymentId, boolean ledger, boolean balance) {
+        if (!ledger && !balance) {
+            return;
+        }
+        Optional<SagaState> saga = sagaRepository.findByPaymentId(paymentId);
+        if (saga.isEmpty()) {
+            logger.warn("Saga not found for late step compensation: paymentId={}", paymentId);
+            return;
+        }
+        logger.warn("Step completed after saga entered compensation: paymentId={}, ledger={}, balance={}",
+            paymentId, ledger, balance);
+        request(saga.get(), ledger, balance);
+    }
+
+    private void request(SagaState saga, boolean ledger, boolean balance) {
+        // Criar PaymentRequest para compensação
+        PaymentRequest request = new PaymentRequest();
+        request.setAccountId(saga.getAccountId());
+        request.setAmount(new BigDecimal(saga.getAmount()));
+        request.setCurrency(saga.getCurrency());
+
+        if (ledger) {
+            eventPublisher.publishCompensationRequest(saga.getPaymentId(), "ledger", request);
+            logger.info("Compensation requested for ledger: paymentId={}", saga.getPaymentId());
+        }
+
+        if (balance) {
+            eventPublisher.publishCompensationRequest(saga.getPaymentId(), "balance", request);
+            logger.info("Compensation requested for balance: paymentId={}", saga.getPaymentId());
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.fintechdev.payment.service;
+
+import com.fintechdev.payment.model.SagaState;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind das conclusões de etapa (ledger/balance) das SAGAs ativas.
+ * <p>
+ * Com {@code saga.write-behind.enabled=true}, o listener só grava a mudança em um log durável
+ * (um Redis Stream compartilhado por todas as réplicas); o flush periódico lê o stream pelo consumer
+ * group ({@code XREADGROUP}), junta as duas etapas de uma mesma SAGA e aplica todas em um único
+ * {@code UPDATE ... FROM (VALUES ...)}. Só depois do UPDATE as entradas recebem {@code XACK}.
+ * <p>
+ * Entradas lidas por uma réplica que morreu ficam pendentes no grupo; a varredura periódica as
+ * reivindica ({@code XPENDING} + {@code XCLAIM}) depois de {@code claim-idle-ms} sem entrega, então
+ * nenhuma transição confirmada ao broker se perde num crash, qualquer que seja o hostname na volta.
+ * Falhas e compensações continuam síncronas.
+ */
+@Component
+public class SagaCompletionWriteBehind implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaCompletionWriteBehind.class);
+
+    private static final String GROUP = "saga-write-behind";
+    private static final int MAX_ROWS_PER_UPDATE = 1000;
+    // Como em SagaStateRepository.markStepsCompleted: as flags anteriores vêm da linha travada,
+    // para saber quais etapas este flush ligou (ordem por id evita deadlock entre réplicas)
+    private static final String UPDATE_PREFIX = "WITH v(payment_id, ledger, balance) AS (VALUES ";
+    private static final String UPDATE_SUFFIX = "), prev AS (" +
+        "SELECT s.id, v.ledger AS set_ledger, v.balance AS set_balance, " +
+        "COALESCE(s.ledger_completed, false) AS was_ledger, COALESCE(s.balance_completed, false) AS was_balance " +
+        "FROM saga_states s JOIN v ON s.payment_id = v.payment_id ORDER BY s.id FOR UPDATE OF s) " +
+        "UPDATE saga_states s SET " +
+        "ledger_completed = p.was_ledger OR p.set_ledger, " +
+        "balance_completed = p.was_balance OR p.set_balance, " +
+        "status = CASE WHEN s.status = 'PROCESSING' " +
+        "AND (p.was_ledger OR p.set_ledger) AND (p.was_balance OR p.set_balance) " +
+        "THEN 'COMPLETED' ELSE s.status END, " +
+        "updated_at = now() FROM prev p WHERE s.id = p.id " +
+        "RETURNING s.payment_id, s.status, p.set_ledger AND NOT p.was_ledger, p.set_balance AND NOT p.was_balance";
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger awaitingSaga = new AtomicInteger();
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final SagaDeadlineScheduler deadlineScheduler;
+    private final PaymentStatusCache statusCache;
+    private final SagaCompensationRequester compensationRequester;
+    private final DistributionSummary flushSizeSummary;
+    private final boolean enabled;
+    private final String streamKey;
+    private final Consumer consumer;
+    private final int readBatchSize;
+    private final Duration claimIdle;
+    private final Duration maxAge;
+
+    public SagaCompletionWriteBehind(JdbcTemplate jdbcTemplate,
+                                     StringRedisTemplate redisTemplate,
+                                     SagaDeadlineScheduler deadlineScheduler,
+                                     PaymentStatusCache statusCache,
+                                     SagaCompensationRequester compensationRequester,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${saga.write-behind.enabled:false}") boolean enabled,
+                                     @Value("${saga.write-behind.stream-key:saga:write-behind}") String streamKey,
+                                     @Value("${HOSTNAME:payment-service}") String hostname,
+                                     @Value("${saga.write-behind.read-batch-size:1000}") int readBatchSize,
+                                     @Value("${saga.write-behind.claim-idle-ms:30000}") long claimIdleMs,
+                                     @Value("${saga.write-behind.max-age-seconds:60}") long maxAgeSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.deadlineScheduler = deadlineScheduler;
+        this.statusCache = statusCache;
+        this.compensationRequester = compensationRequester;
+        this.enabled = enabled;
+        this.streamKey = streamKey;
+        // Nome único por processo: réplicas sem HOSTNAME (ou que reaproveitam o nome) não dividem pendências
+        this.consumer = Consumer.from(GROUP, hostname + "-" + UUID.randomUUID().toString().substring(0, 8));
+        this.readBatchSize = readBatchSize;
+        this.claimIdle = Duration.ofMillis(claimIdleMs);
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        this.flushSizeSummary = DistributionSummary.builder("saga.write-behind.flush.size")
+            .description("Sagas updated per write-behind flush")
+            .register(meterRegistry);
+        Gauge.builder("saga.write-behind.pending", awaitingSaga, AtomicInteger::get)
+            .description("Write-behind entries waiting for their saga to be committed")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registra a conclusão de uma etapa no log durável.
+     *
+     * @return {@code false} se o log não pôde ser gravado; o chamador deve seguir pelo caminho síncrono
+     */
+    public boolean record(String paymentId, Step step) {
+        try {
+            redisTemplate.opsForStream().add(StreamRecords.string(
+                Map.of("paymentId", paymentId, "step", step.name())).withStreamKey(streamKey));
+            return true;
+        } catch (Exception e) {
+            logger.warn("Write-behind log unavailable, applying completion synchronously: paymentId={}", paymentId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Aplica as entradas pendentes deste consumidor (SAGA ainda não commitada ou reivindicadas de
+     * outra réplica) e as ainda não lidas por nenhuma réplica. Também chamado antes de decidir um timeout.
+     */
+    @Scheduled(fixedDelayString = "${saga.write-behind.flush-interval-ms:50}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<MapRecord<String, Object, Object>> owned = read(ReadOffset.from("0"));
+            int awaiting = owned.isEmpty() ? 0 : apply(owned);
+            List<MapRecord<String, Object, Object>> fresh;
+            do {
+                fresh = read(ReadOffset.lastConsumed());
+                if (!fresh.isEmpty()) {
+                    awaiting += apply(fresh);
+                }
+            } while (fresh.size() == readBatchSize);
+            awaitingSaga.set(awaiting);
+        } catch (Exception e) {
+            // Nada recebeu XACK: as entradas continuam pendentes neste consumidor
+            logger.error("Write-behind flush failed, will retry", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Reivindica entradas lidas por consumidores que pararam de entregar (réplica morta ou
+     * reiniciada com outro nome); o próximo flush as aplica.
+     */
+    @Scheduled(fixedDelayString = "${saga.write-behind.claim-interval-ms:10000}")
+    public void claimAbandoned() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Range<String> range = Range.unbounded();
+            int claimed = 0;
+            while (true) {
+                PendingMessages page = redisTemplate.opsForStream().pending(streamKey, GROUP, range, readBatchSize);
+                List<RecordId> abandoned = new ArrayList<>();
+                for (PendingMessage message : page) {
+                    if (!consumer.getName().equals(message.getConsumerName())
+                            && message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0) {
+                        abandoned.add(message.getId());
+                    }
+                }
+                if (!abandoned.isEmpty()) {
+                    // O próprio XCLAIM confere o idle de novo: duas réplicas não pegam a mesma entrada
+                    claimed += redisTemplate.opsForStream().claim(streamKey, GROUP, consumer.getName(),
+                        claimIdle, abandoned.toArray(new RecordId[0])).size();
+                }
+                if (page.size() < readBatchSize) {
+                    break;
+                }
+                range = Range.rightUnbounded(Range.Bound.exclusive(page.get(page.size() - 1).getIdAsString()));
+            }
+            if (claimed > 0) {
+                logger.info("Write-behind entries claimed from inactive consumers: records={}", claimed);
+            }
+        } catch (Exception e) {
+            logger.warn("Write-behind claim sweep failed", e);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForStream().createGroup(streamKey, ReadOffset.from("0"), GROUP);
+        } catch (RedisSystemException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            flush();
+            // Sem pendências, o consumidor sai do grupo; senão fica para a varredura das outras réplicas
+            if (redisTemplate.opsForStream().pending(streamKey, consumer).isEmpty()) {
+                redisTemplate.opsForStream().deleteConsumer(streamKey, consumer);
+            }
+        } catch (Exception e) {
+            logger.warn("Write-behind flush on shutdown failed", e);
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> read(ReadOffset offset) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+            consumer, StreamReadOptions.empty().count(readBatchSize), StreamOffset.create(streamKey, offset));
+        return records == null ? List.of() : records;
+    }
+
+    /**
+     * @return quantas SAGAs continuam aguardando o commit (entradas ficam pendentes, sem XACK)
+     */
+    private int apply(List<MapRecord<String, Object, Object>> records) {
+        Map<String, Change> batch = new HashMap<>();
+        List<RecordId> malformed = new ArrayList<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            // Entradas pendentes já removidas do stream voltam do XREADGROUP sem campos
+            Map<Object, Object> value = record.getValue();
+            Object paymentId = value == null ? null : value.get("paymentId");
+            Step step = value == null ? null : Step.parse(value.get("step"));
+            if (!(paymentId instanceof String) || step == null) {
+                // Recebe XACK aqui: sem isso a entrada voltaria em todo flush e em toda reivindicação
+                malformed.add(record.getId());
+                continue;
+            }
+            batch.merge((String) paymentId, Change.of(step, record.getId()), Change::merge);
+        }
+        if (!malformed.isEmpty()) {
+            logger.warn("Dropping malformed write-behind entries: records={}, ids={}", malformed.size(), malformed);
+            acknowledge(malformed);
+        }
+
+        int awaiting = 0;
+        List<Map.Entry<String, Change>> entries = new ArrayList<>(batch.entrySet());
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_UPDATE) {
+            List<Map.Entry<String, Change>> chunk = entries.subList(from, Math.min(from + MAX_ROWS_PER_UPDATE, entries.size()));
+
+            StringBuilder sql = new StringBuilder(UPDATE_PREFIX);
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                args.add(chunk.get(i).getKey());
+                args.add(chunk.get(i).getValue().ledger());
+                args.add(chunk.get(i).getValue().balance());
+            }
+            sql.append(UPDATE_SUFFIX);
+
+            Map<String, Applied> statuses = new HashMap<>();
+            jdbcTemplate.query(sql.toString(),
+                rs -> { statuses.put(rs.getString(1), new Applied(rs.getString(2), rs.getBoolean(3), rs.getBoolean(4))); },
+                args.toArray());
+
+            List<RecordId> flushedIds = new ArrayList<>();
+            for (Map.Entry<String, Change> entry : chunk) {
+                String paymentId = entry.getKey();
+                Change change = entry.getValue();
+                Applied applied = statuses.get(paymentId);
+                if (applied == null && change.firstSeenAt().plus(maxAge).isAfter(Instant.now())) {
+                    // SAGA ainda não commitada: fica pendente e volta no próximo flush
+                    awaiting++;
+                    continue;
+                }
+                if (applied == null) {
+                    logger.warn("Saga not found for write-behind completion, dropping: paymentId={}", paymentId);
+                } else if (SagaState.SagaStatus.COMPLETED.name().equals(applied.status())) {
+                    deadlineScheduler.cancel(paymentId);
+                    statusCache.update(paymentId, SagaState.SagaStatus.COMPLETED);
+                    logger.info("Saga completed successfully: paymentId={}", paymentId);
+                } else if (SagaCompensationRequester.isCompensating(applied.status())) {
+                    compensationRequester.requestLateSteps(paymentId, applied.ledger(), applied.balance());
+                }
+                flushedIds.addAll(change.logIds());
+            }
+
+            flushSizeSummary.record(statuses.size());
+            acknowledge(flushedIds);
+        }
+        return awaiting;
+    }
+
+    private void acknowledge(List<RecordId> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RecordId[] recordIds = ids.toArray(new RecordId[0]);
+        try {
+            redisTemplate.opsForStream().acknowledge(streamKey, GROUP, recordIds);
+            redisTemplate.opsForStream().delete(streamKey, recordIds);
+        } catch (Exception e) {
+            // Reaplicar é idempotente (só liga flags), então uma entrada sem XACK não causa erro
+            logger.warn("Failed to acknowledge write-behind entries: records={}", ids.size(), e);
+        }
+    }
+
+    public enum Step {
+        LEDGER,
+        BALANCE;
+
+        static Step parse(Object value) {
+            if (!(value instanceof String name)) {
+                return null;
+            }
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    // Status resultante e flags que este flush ligou
+    private record Applied(String status, boolean ledger, boolean balance) {
+    }
+
+    record Change(boolean ledger, boolean balance, Instant firstSeenAt, List<RecordId> logIds) {
+
+        static Change of(Step step, RecordId logId) {
+            // O id do stream carrega o instante do XADD, então a idade sobrevive a restarts e reivindicações
+            Long timestamp = logId.getTimestamp();
+            return new Change(step == Step.LEDGER, step == Step.BALANCE,
+                timestamp != null ? Instant.ofEpochMilli(timestamp) : Instant.now(), List.of(logId));
+        }
+
+        Change merge(Change other) {
+            List<RecordId> ids = new ArrayList<>(logIds);
+            ids.addAll(other.logIds);
+            return new Change(ledger || other.ledger, balance || other.balance,
+                firstSeenAt.isBefore(other.firstSeenAt) ? firstSeenAt : other.firstSeenAt, ids);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.fintechdev.payment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel (hashed, com contagem de voltas) para o timeout das SAGAs.
+ * <p>
+ * Cada SAGA criada nesta instância registra seu {@code timeoutAt}; a conclusão ou falha cancela
+ * o registro. Uma única thread avança a roda a cada tick e entrega os vencidos ao handler de
+ * expiração em um executor separado, então o disparo ocorre com precisão de um tick sem consultar
+ * o banco. O {@link SagaTimeoutChecker} continua como varredura de recuperação (ex.: após restart).
+ * <p>
+ * Os buckets só são acessados pela thread da roda; registros e cancelamentos chegam por estruturas
+ * concorrentes, sem {@code synchronized}.
+ */
+@Component
+public class SagaDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaDeadlineScheduler.class);
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Deadline>[] buckets;
+    private final Queue<Deadline> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Deadline> deadlines = new ConcurrentHashMap<>();
+    private final ExecutorService expiryExecutor;
+    private final Counter firedCounter;
+    private volatile Consumer<String> expiryHandler = paymentId -> { };
+    private volatile boolean running;
+    private Thread worker;
+
+    @SuppressWarnings("unchecked")
+    public SagaDeadlineScheduler(MeterRegistry meterRegistry,
+                                 @Value("${saga.deadline.tick-ms:10}") long tickMs,
+                                 @Value("${saga.deadline.wheel-size:1024}") int wheelSize,
+                                 @Value("${saga.deadline.expiry-threads:2}") int expiryThreads) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("saga.deadline.wheel-size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = Duration.ofMillis(tickMs).toNanos();
+        this.mask = wheelSize - 1;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.expiryExecutor = Executors.newFixedThreadPool(expiryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "saga-deadline-expiry-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.firedCounter = Counter.builder("saga.deadline.fired")
+            .description("Saga deadlines fired by the timing wheel")
+            .register(meterRegistry);
+        Gauge.builder("saga.deadline.pending", deadlines, ConcurrentHashMap::size)
+            .description("Saga deadlines registered in the timing wheel")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Define quem trata uma SAGA vencida (recebe o paymentId).
+     */
+    public void onExpiry(Consumer<String> handler) {
+        this.expiryHandler = handler;
+    }
+
+    public void schedule(String paymentId, Instant timeoutAt) {
+        long delayNanos = Math.max(0, Duration.between(Instant.now(), timeoutAt).toNanos());
+        Deadline deadline = new Deadline(paymentId, System.nanoTime() + delayNanos);
+        Deadline previous = deadlines.put(paymentId, deadline);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pending.add(deadline);
+    }
+
+    public void cancel(String paymentId) {
+        Deadline deadline = deadlines.remove(paymentId);
+        if (deadline != null) {
+            // Removido do bucket de forma preguiçosa quando a roda passar por ele
+            deadline.cancelled = true;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::run, "saga-deadline-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        expiryExecutor.shutdown();
+    }
+
+    private void run() {
+        long startNanos = System.nanoTime();
+        long tick = 0;
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) < tickDeadline) {
+                LockSupport.parkNanos(tickDeadline - now);
+                if (!running) {
+                    return;
+                }
+            }
+            transferPending(startNanos, tick);
+            expireBucket(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferPending(long startNanos, long tick) {
+        Deadline deadline;
+        while ((deadline = pending.poll()) != null) {
+            if (deadline.cancelled) {
+                continue;
+            }
+            long calculated = (deadline.deadlineNanos - startNanos) / tickNanos;
+            deadline.remainingRounds = (calculated - tick) / buckets.length;
+            // Prazos já vencidos caem no bucket atual e disparam neste tick
+            long ticks = Math.max(calculated, tick);
+            buckets[(int) (ticks & mask)].add(deadline);
+        }
+    }
+
+    private void expireBucket(Queue<Deadline> bucket) {
+        Iterator<Deadline> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Deadline deadline = iterator.next();
+            if (deadline.cancelled) {
+                iterator.remove();
+            } else if (deadline.remainingRounds <= 0) {
+                iterator.remove();
+                fire(deadline);
+            } else {
+                deadline.remainingRounds--;
+            }
+        }
+    }
+
+    private void fire(Deadline deadline) {
+        if (!deadlines.remove(deadline.paymentId, deadline)) {
+            return;
+        }
+        firedCounter.increment();
+        expiryExecutor.execute(() -> {
+            try {
+                expiryHandler.accept(deadline.paymentId);
+            } catch (Exception e) {
+                // A varredura de recuperação do SagaTimeoutChecker pega esta SAGA depois
+                logger.error("Error expiring saga: paymentId={}", deadline.paymentId, e);
+            }
+        });
+    }
+
+    private static final class Deadline {
+        private final String paymentId;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Deadline(String paymentId, long deadlineNanos) {
+            this.paymentId = paymentId;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -3,130 +3,140 @@ package com.fintechdev.payment.service;
 import com.fintechdev.payment.model.SagaState;
 import com.fintechdev.payment.repository.SagaStateRepository;
 import com.fintechdev.payment.messaging.PaymentEventPublisher;
-import com.fintechdev.payment.dto.PaymentRequest;
+import com.fintechdev.payment.messaging.SagaEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
 
-import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Aplica os eventos de resultado das etapas na {@code SagaState}.
+ * <p>
+ * Cada transição é uma única instrução condicional no banco ({@code UPDATE ... RETURNING}), então
+ * eventos concorrentes da mesma SAGA, em qualquer réplica, no timeout ou no flush do write-behind,
+ * não sobrescrevem as mudanças uns dos outros: o banco aplica cada uma sobre a linha atual.
+ * <p>
+ * Isso não ordena os eventos: uma conclusão pode ser aplicada depois que a falha (ou o timeout)
+ * já colocou a SAGA em compensação. O UPDATE devolve quais flags ele ligou, e a etapa concluída
+ * tarde é compensada pelo {@link SagaCompensationRequester}.
+ */
 @Service
 public class SagaOrchestrator {
     
     private static final Logger logger = LoggerFactory.getLogger(SagaOrchestrator.class);
     private final SagaStateRepository sagaRepository;
     private final PaymentEventPublisher eventPublisher;
-    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final SagaDeadlineScheduler deadlineScheduler;
+    private final SagaCompletionWriteBehind writeBehind;
+    private final PaymentStatusCache statusCache;
+    private final SagaCompensationRequester compensationRequester;
+    private final int maxParkAttempts;
     
     public SagaOrchestrator(SagaStateRepository sagaRepository,
                            PaymentEventPublisher eventPublisher,
-                           ObjectMapper objectMapper) {
+                           ObjectMapper objectMapper,
+                           SagaDeadlineScheduler deadlineScheduler,
+                           SagaCompletionWriteBehind writeBehind,
+                           PaymentStatusCache statusCache,
+                           SagaCompensationRequester compensationRequester,
+                           @Value("${saga.pending-completion.max-park-attempts:10}") int maxParkAttempts) {
         this.sagaRepository = sagaRepository;
         this.eventPublisher = eventPublisher;
-        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.deadlineScheduler = deadlineScheduler;
+        this.writeBehind = writeBehind;
+        this.statusCache = statusCache;
+        this.compensationRequester = compensationRequester;
+        this.maxParkAttempts = maxParkAttempts;
     }
     
     @RabbitListener(queues = "saga.ledger.completed")
-    public void handleLedgerCompleted(String message) {
+    public void handleLedgerCompleted(Message message,
+                                      @Header(name = PaymentEventPublisher.PARK_COUNT_HEADER, required = false) Integer parkCount) {
         try {
-            JsonNode event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
-            
-            // Retry logic: aguardar até 2 segundos para a SAGA ser criada (race condition)
-            Optional<SagaState> sagaOpt = Optional.empty();
-            for (int attempt = 0; attempt < 10; attempt++) {
-                sagaOpt = sagaRepository.findByPaymentId(paymentId);
-                if (sagaOpt.isPresent()) {
-                    break;
-                }
-                try {
-                    Thread.sleep(200); // Aguardar 200ms entre tentativas
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+            String paymentId = SagaEvent.read(jsonFactory, message.getBody()).paymentId();
             
-            if (sagaOpt.isEmpty()) {
-                logger.warn("Saga not found for paymentId: {} after retries", paymentId);
+            if (writeBehind.isEnabled() && writeBehind.record(paymentId, SagaCompletionWriteBehind.Step.LEDGER)) {
+                logger.debug("Ledger completion queued for write-behind: paymentId={}", paymentId);
                 return;
             }
             
-            SagaState saga = sagaOpt.get();
-            saga.setLedgerCompleted(true);
-            checkAndCompleteSaga(saga);
-            sagaRepository.save(saga);
+            Optional<SagaStateRepository.StepCompletion> completion = sagaRepository.markStepsCompleted(paymentId, true, false);
+            if (completion.isEmpty()) {
+                // Evento chegou antes do commit da SAGA (race condition): estaciona e tenta de novo
+                deferCompletion(paymentId, "ledger.completed", message.getBody(), parkCount);
+                return;
+            }
+            onStepsCompleted(paymentId, completion.get());
             
             logger.info("Ledger completed for paymentId: {}", paymentId);
             
+        } catch (AmqpException e) {
+            // Parking não confirmado: a mensagem volta para a fila em vez de ser perdida
+            throw e;
         } catch (Exception e) {
             logger.error("Error handling ledger completed", e);
         }
     }
     
     @RabbitListener(queues = "saga.balance.completed")
-    public void handleBalanceCompleted(String message) {
+    public void handleBalanceCompleted(Message message,
+                                       @Header(name = PaymentEventPublisher.PARK_COUNT_HEADER, required = false) Integer parkCount) {
         try {
-            JsonNode event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
-            
-            // Retry logic: aguardar até 2 segundos para a SAGA ser criada (race condition)
-            Optional<SagaState> sagaOpt = Optional.empty();
-            for (int attempt = 0; attempt < 10; attempt++) {
-                sagaOpt = sagaRepository.findByPaymentId(paymentId);
-                if (sagaOpt.isPresent()) {
-                    break;
-                }
-                try {
-                    Thread.sleep(200); // Aguardar 200ms entre tentativas
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+            String paymentId = SagaEvent.read(jsonFactory, message.getBody()).paymentId();
             
-            if (sagaOpt.isEmpty()) {
-                logger.warn("Saga not found for paymentId: {} after retries", paymentId);
+            if (writeBehind.isEnabled() && writeBehind.record(paymentId, SagaCompletionWriteBehind.Step.BALANCE)) {
+                logger.debug("Balance completion queued for write-behind: paymentId={}", paymentId);
                 return;
             }
             
-            SagaState saga = sagaOpt.get();
-            saga.setBalanceCompleted(true);
-            checkAndCompleteSaga(saga);
-            sagaRepository.save(saga);
+            Optional<SagaStateRepository.StepCompletion> completion = sagaRepository.markStepsCompleted(paymentId, false, true);
+            if (completion.isEmpty()) {
+                // Evento chegou antes do commit da SAGA (race condition): estaciona e tenta de novo
+                deferCompletion(paymentId, "balance.completed", message.getBody(), parkCount);
+                return;
+            }
+            onStepsCompleted(paymentId, completion.get());
             
             logger.info("Balance completed for paymentId: {}", paymentId);
             
+        } catch (AmqpException e) {
+            // Parking não confirmado: a mensagem volta para a fila em vez de ser perdida
+            throw e;
         } catch (Exception e) {
             logger.error("Error handling balance completed", e);
         }
     }
     
     @RabbitListener(queues = "saga.ledger.failed")
-    public void handleLedgerFailed(String message) {
+    public void handleLedgerFailed(Message message) {
         try {
-            JsonNode event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
-            String reason = event.has("reason") ? event.get("reason").asText() : "Unknown error";
+            SagaEvent event = SagaEvent.read(jsonFactory, message.getBody());
+            String paymentId = event.paymentId();
+            String reason = event.reasonOrDefault();
             
-            Optional<SagaState> sagaOpt = sagaRepository.findByPaymentId(paymentId);
+            Optional<SagaState> sagaOpt = sagaRepository.failAndStartCompensation(paymentId, "Ledger failed: " + reason);
             if (sagaOpt.isEmpty()) {
-                logger.warn("Saga not found for paymentId: {}", paymentId);
+                logger.warn("Saga not found or no longer in progress for paymentId: {}", paymentId);
                 return;
             }
             
-            SagaState saga = sagaOpt.get();
-            saga.setStatus(SagaState.SagaStatus.FAILED);
-            saga.setFailureReason("Ledger failed: " + reason);
-            sagaRepository.save(saga);
-            
             // Iniciar compensação
-            startCompensation(saga);
+            deadlineScheduler.cancel(paymentId);
+            statusCache.update(paymentId, SagaState.SagaStatus.COMPENSATING);
+            compensationRequester.requestCompleted(sagaOpt.get());
             
             logger.error("Ledger failed for paymentId: {}, reason: {}", paymentId, reason);
             
@@ -136,25 +146,22 @@ public class SagaOrchestrator {
     }
     
     @RabbitListener(queues = "saga.balance.failed")
-    public void handleBalanceFailed(String message) {
+    public void handleBalanceFailed(Message message) {
         try {
-            JsonNode event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
-            String reason = event.has("reason") ? event.get("reason").asText() : "Unknown error";
+            SagaEvent event = SagaEvent.read(jsonFactory, message.getBody());
+            String paymentId = event.paymentId();
+            String reason = event.reasonOrDefault();
             
-            Optional<SagaState> sagaOpt = sagaRepository.findByPaymentId(paymentId);
+            Optional<SagaState> sagaOpt = sagaRepository.failAndStartCompensation(paymentId, "Balance failed: " + reason);
             if (sagaOpt.isEmpty()) {
-                logger.warn("Saga not found for paymentId: {}", paymentId);
+                logger.warn("Saga not found or no longer in progress for paymentId: {}", paymentId);
                 return;
             }
             
-            SagaState saga = sagaOpt.get();
-            saga.setStatus(SagaState.SagaStatus.FAILED);
-            saga.setFailureReason("Balance failed: " + reason);
-            sagaRepository.save(saga);
-            
             // Iniciar compensação
-            startCompensation(saga);
+            deadlineScheduler.cancel(paymentId);
+            statusCache.update(paymentId, SagaState.SagaStatus.COMPENSATING);
+            compensationRequester.requestCompleted(sagaOpt.get());
             
             logger.error("Balance failed for paymentId: {}, reason: {}", paymentId, reason);
             
@@ -164,20 +171,15 @@ public class SagaOrchestrator {
     }
     
     @RabbitListener(queues = "saga.compensation.completed")
-    public void handleCompensationCompleted(String message) {
+    public void handleCompensationCompleted(Message message) {
         try {
-            JsonNode event = objectMapper.readTree(message);
-            String paymentId = event.get("paymentId").asText();
+            String paymentId = SagaEvent.read(jsonFactory, message.getBody()).paymentId();
             
-            Optional<SagaState> sagaOpt = sagaRepository.findByPaymentId(paymentId);
-            if (sagaOpt.isEmpty()) {
-                logger.warn("Saga not found for paymentId: {}", paymentId);
+            if (sagaRepository.markCompensated(paymentId) == 0) {
+                logger.warn("Saga not found or not compensating for paymentId: {}", paymentId);
                 return;
             }
-            
-            SagaState saga = sagaOpt.get();
-            saga.setStatus(SagaState.SagaStatus.COMPENSATED);
-            sagaRepository.save(saga);
+            statusCache.update(paymentId, SagaState.SagaStatus.COMPENSATED);
             
             logger.info("Compensation completed for paymentId: {}", paymentId);
             
@@ -186,48 +188,68 @@ public class SagaOrchestrator {
         }
     }
     
-    @Transactional
-    private void checkAndCompleteSaga(SagaState saga) {
-        // Não mudar status se já está em compensação ou compensado
-        if (saga.getStatus() == SagaState.SagaStatus.COMPENSATING || 
-            saga.getStatus() == SagaState.SagaStatus.COMPENSATED) {
-            logger.debug("Saga is in compensation state, not changing to COMPLETED: paymentId={}, status={}", 
-                saga.getPaymentId(), saga.getStatus());
+    /**
+     * Conclusão que chegou antes do commit da SAGA: estaciona na fila de parking, que a devolve ao
+     * exchange de SAGA após o TTL. O evento nunca fica só na memória desta instância: a mensagem
+     * original só é confirmada depois que o broker confirmar a cópia estacionada, e qualquer réplica
+     * pode aplicá-la quando ela voltar.
+     */
+    private void deferCompletion(String paymentId, String routingKey, byte[] body, Integer parkCount) {
+        int attempts = parkCount == null ? 0 : parkCount;
+        if (attempts >= maxParkAttempts) {
+            logger.warn("Saga not found for paymentId: {} after {} parking attempts, dropping {}", paymentId, attempts, routingKey);
             return;
         }
         
-        if (Boolean.TRUE.equals(saga.getLedgerCompleted()) && 
-            Boolean.TRUE.equals(saga.getBalanceCompleted())) {
-            
-            saga.setStatus(SagaState.SagaStatus.COMPLETED);
-            logger.info("Saga completed successfully: paymentId={}", saga.getPaymentId());
+        try {
+            eventPublisher.parkSagaEvent(routingKey, body, attempts + 1).join();
+        } catch (CompletionException e) {
+            throw new AmqpException("Failed to park " + routingKey + " for paymentId: " + paymentId, e.getCause());
         }
+        logger.debug("Saga not persisted yet, parked {} for paymentId: {}", routingKey, paymentId);
     }
     
+    private void onStepsCompleted(String paymentId, SagaStateRepository.StepCompletion completion) {
+        // A transição para COMPLETED só acontece a partir de PROCESSING (nunca em compensação)
+        if (SagaState.SagaStatus.COMPLETED.name().equals(completion.getStatus())) {
+            deadlineScheduler.cancel(paymentId);
+            statusCache.update(paymentId, SagaState.SagaStatus.COMPLETED);
+            logger.info("Saga completed successfully: paymentId={}", paymentId);
+        } else if (SagaCompensationRequester.isCompensating(completion.getStatus())) {
+            compensationRequester.requestLateSteps(paymentId, completion.getLedgerApplied(), completion.getBalanceApplied());
+        }
+    }
+    
+    /**
+     * Caminho do timeout: a SAGA chega travada ({@code FOR UPDATE} em {@code claimTimedOutSaga(s)}),
+     * então eventos concorrentes esperam o commit e o {@code save} não sobrescreve nenhuma transição.
+     * O pedido de compensação só sai depois do commit: se a transação falhar, a SAGA continua em
+     * PROCESSING e nenhum serviço reverte etapas.
+     */
     public void startCompensation(SagaState saga) {
         saga.setStatus(SagaState.SagaStatus.COMPENSATING);
         sagaRepository.save(saga);
-        
-        // Criar PaymentRequest para compensação
-        PaymentRequest request = new PaymentRequest();
-        request.setAccountId(saga.getAccountId());
-        request.setAmount(new BigDecimal(saga.getAmount()));
-        request.setCurrency(saga.getCurrency());
-        
-        // Compensar serviços que já completaram
-        if (Boolean.TRUE.equals(saga.getLedgerCompleted())) {
-            eventPublisher.publishCompensationRequest(
-                saga.getPaymentId(), "ledger", request
-            );
-            logger.info("Compensation requested for ledger: paymentId={}", saga.getPaymentId());
-        }
-        
-        if (Boolean.TRUE.equals(saga.getBalanceCompleted())) {
-            eventPublisher.publishCompensationRequest(
-                saga.getPaymentId(), "balance", request
-            );
-            logger.info("Compensation requested for balance: paymentId={}", saga.getPaymentId());
+        statusCache.update(saga.getPaymentId(), SagaState.SagaStatus.COMPENSATING);
+        afterCommit(() -> {
+            deadlineScheduler.cancel(saga.getPaymentId());
+            compensationRequester.requestCompleted(saga);
+        });
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    logger.error("After-commit action failed", e);
+                }
+            }
+        });
     }
 }
-
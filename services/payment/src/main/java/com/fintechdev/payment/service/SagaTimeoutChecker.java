@@ -2,14 +2,19 @@ package com.fintechdev.payment.service;
 
 import com.fintechdev.payment.model.SagaState;
 import com.fintechdev.payment.repository.SagaStateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class SagaTimeoutChecker {
@@ -17,49 +22,105 @@ public class SagaTimeoutChecker {
     private static final Logger logger = LoggerFactory.getLogger(SagaTimeoutChecker.class);
     private final SagaStateRepository sagaRepository;
     private final SagaOrchestrator sagaOrchestrator;
+    private final SagaCompletionWriteBehind writeBehind;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter scannedCounter;
+    private final Counter expiredCounter;
+    private final Timer scanTimer;
     
-    public SagaTimeoutChecker(SagaStateRepository sagaRepository, SagaOrchestrator sagaOrchestrator) {
+    public SagaTimeoutChecker(SagaStateRepository sagaRepository,
+                              SagaOrchestrator sagaOrchestrator,
+                              SagaDeadlineScheduler deadlineScheduler,
+                              SagaCompletionWriteBehind writeBehind,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${saga.timeout.scan-batch-size:100}") int batchSize,
+                              @Value("${saga.timeout.scan-max-batches:50}") int maxBatchesPerRun) {
         this.sagaRepository = sagaRepository;
         this.sagaOrchestrator = sagaOrchestrator;
+        this.writeBehind = writeBehind;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.scannedCounter = Counter.builder("saga.timeout.scanned")
+            .description("Timed-out sagas claimed by the scanner")
+            .register(meterRegistry);
+        this.expiredCounter = Counter.builder("saga.timeout.expired")
+            .description("Sagas failed by timeout and sent to compensation")
+            .register(meterRegistry);
+        this.scanTimer = Timer.builder("saga.timeout.scan")
+            .description("Duration of a timeout scan run")
+            .register(meterRegistry);
+        deadlineScheduler.onExpiry(this::expireSaga);
     }
     
     /**
-     * Verifica SAGAs que excederam o timeout a cada 5 segundos
+     * Expira uma SAGA quando o prazo dispara no {@link SagaDeadlineScheduler}.
+     * O estado é conferido de novo no banco: a SAGA pode ter concluído em outra réplica.
      */
-    @Scheduled(fixedRate = 5000)
-    @Transactional
+    public void expireSaga(String paymentId) {
+        // Conclusões ainda no log do write-behind precisam chegar ao banco antes de decidir o timeout
+        writeBehind.flush();
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<SagaState> saga = sagaRepository.claimTimedOutSaga(paymentId, Instant.now());
+            saga.ifPresent(this::expire);
+        });
+    }
+    
+    /**
+     * Varredura de recuperação em lotes: pega SAGAs cujo prazo não estava no timing wheel
+     * (criadas antes de um restart ou por outra instância que caiu).
+     * Cada lote é reivindicado com {@code FOR UPDATE SKIP LOCKED} e commitado separadamente,
+     * então réplicas dividem o trabalho e nenhuma transação fica aberta pelo backlog inteiro.
+     */
+    @Scheduled(fixedDelayString = "${saga.timeout.scan-interval-ms:60000}")
     public void checkTimeouts() {
-        Instant now = Instant.now();
-        
+        scanTimer.record(() -> {
+            writeBehind.flush();
+            Instant now = Instant.now();
+            int batches = 0;
+            Integer claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> expireBatch(now));
+                batches++;
+            } while (claimed != null && claimed == batchSize && batches < maxBatchesPerRun);
+        });
+    }
+    
+    private int expireBatch(Instant now) {
         // Buscar SAGAs em PROCESSING que excederam o timeout
-        List<SagaState> timedOutSagas = sagaRepository.findTimedOutSagas(
-            SagaState.SagaStatus.PROCESSING, 
-            now
-        ).stream()
-            .filter(saga -> !Boolean.TRUE.equals(saga.getLedgerCompleted()) || !Boolean.TRUE.equals(saga.getBalanceCompleted()))
-            .toList();
+        List<SagaState> timedOutSagas = sagaRepository.claimTimedOutSagas(now, batchSize);
+        scannedCounter.increment(timedOutSagas.size());
         
         for (SagaState saga : timedOutSagas) {
-            logger.warn("SAGA timeout detected: paymentId={}, timeoutAt={}, ledgerCompleted={}, balanceCompleted={}",
-                saga.getPaymentId(), saga.getTimeoutAt(), saga.getLedgerCompleted(), saga.getBalanceCompleted());
-            
-            // Determinar qual serviço falhou
-            String failureReason;
-            if (!Boolean.TRUE.equals(saga.getLedgerCompleted()) && !Boolean.TRUE.equals(saga.getBalanceCompleted())) {
-                failureReason = "Timeout: Both Ledger and Balance services did not respond";
-            } else if (!Boolean.TRUE.equals(saga.getLedgerCompleted())) {
-                failureReason = "Timeout: Ledger service did not respond";
-            } else {
-                failureReason = "Timeout: Balance service did not respond";
-            }
-            
-            saga.setStatus(SagaState.SagaStatus.FAILED);
-            saga.setFailureReason(failureReason);
-            sagaRepository.save(saga);
-            
-            // Iniciar compensação
-            sagaOrchestrator.startCompensation(saga);
+            expire(saga);
         }
+        
+        return timedOutSagas.size();
+    }
+    
+    private void expire(SagaState saga) {
+        logger.warn("SAGA timeout detected: paymentId={}, timeoutAt={}, ledgerCompleted={}, balanceCompleted={}",
+            saga.getPaymentId(), saga.getTimeoutAt(), saga.getLedgerCompleted(), saga.getBalanceCompleted());
+        
+        // Determinar qual serviço falhou
+        String failureReason;
+        if (!Boolean.TRUE.equals(saga.getLedgerCompleted()) && !Boolean.TRUE.equals(saga.getBalanceCompleted())) {
+            failureReason = "Timeout: Both Ledger and Balance services did not respond";
+        } else if (!Boolean.TRUE.equals(saga.getLedgerCompleted())) {
+            failureReason = "Timeout: Ledger service did not respond";
+        } else {
+            failureReason = "Timeout: Balance service did not respond";
+        }
+        
+        saga.setStatus(SagaState.SagaStatus.FAILED);
+        saga.setFailureReason(failureReason);
+        sagaRepository.save(saga);
+        
+        // Iniciar compensação
+        sagaOrchestrator.startCompensation(saga);
+        expiredCounter.increment();
     }
 }
-